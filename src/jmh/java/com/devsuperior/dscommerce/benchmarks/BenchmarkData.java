@@ -0,0 +1,54 @@
+package com.devsuperior.dscommerce.benchmarks;
+
+import static com.devsuperior.dscommerce.factories.OrderFactory.ORDER;
+import static com.devsuperior.dscommerce.factories.ProductFactory.PROD;
+import static com.devsuperior.dscommerce.factories.RoleFactory.ROLE_CLIENT;
+import static com.devsuperior.dscommerce.factories.UserFactory.ADMIN;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.devsuperior.dscommerce.entities.Category;
+import com.devsuperior.dscommerce.entities.Order;
+import com.devsuperior.dscommerce.entities.OrderItem;
+import com.devsuperior.dscommerce.entities.Payment;
+import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.entities.User;
+
+// object graphs shaped like the seeded catalog, grown from the test factories
+public class BenchmarkData {
+
+    public static Product product(long id){
+        Product template = PROD();
+        Product product = new Product(id, template.getName() + " " + id, template.getDescription(), template.getPrice() + id, template.getImgUrl());
+        product.getCategories().addAll(template.getCategories());
+        product.getCategories().add(new Category(2L, "Eletrônicos"));
+        product.getCategories().add(new Category(3L, "Computadores"));
+        return product;
+    }
+
+    public static List<Product> products(int size){
+        List<Product> products = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            products.add(product(id));
+        }
+        return products;
+    }
+
+    public static Order order(int items){
+        Order order = ORDER();
+        for (long id = 2; id <= items; id++) {
+            Product product = product(id);
+            order.getItems().add(new OrderItem(order, product, (int) id, product.getPrice()));
+        }
+        order.setPayment(new Payment(order.getId(), Instant.now(), order));
+        return order;
+    }
+
+    public static User user(){
+        User user = ADMIN();
+        user.addRole(ROLE_CLIENT());
+        return user;
+    }
+}
@@ -0,0 +1,126 @@
+package com.devsuperior.dscommerce.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import com.devsuperior.dscommerce.DscommerceApplication;
+import com.devsuperior.dscommerce.dtos.OrderDTO;
+import com.devsuperior.dscommerce.dtos.OrderItemDTO;
+import com.devsuperior.dscommerce.services.OrderService;
+import com.devsuperior.dscommerce.services.exceptions.InsufficientStockException;
+
+// concurrent checkouts of one hot product against the test profile's database: every order reserves the same stock row,
+// which runs out during each iteration so that the rejections and any oversell are measured too
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(32)
+@Fork(1)
+public class CheckoutBenchmark {
+
+    private static final long HOT_PRODUCT_ID = 1L;
+
+    @Param("100")
+    private int initialStock;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private OrderService orderService;
+    private OrderDTO order;
+    private final AtomicLong accepted = new AtomicLong();
+
+    // reported next to the throughput as the accepted and rejected checkouts of the measured iterations
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Client {
+
+        public long orders;
+        public long rejections;
+
+        @Setup(Level.Iteration)
+        public void reset(){
+            orders = 0;
+            rejections = 0;
+        }
+
+        // checkouts are placed by the logged user, which the resource server takes from the token
+        @Setup(Level.Trial)
+        public void login(){
+            Jwt jwt = Jwt.withTokenValue("benchmark").header("alg", "none").claim("username", "maria@gmail.com").build();
+            SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(jwt, List.of(new SimpleGrantedAuthority("ROLE_CLIENT"))));
+        }
+    }
+
+    @Setup
+    public void setup(){
+        context = new SpringApplicationBuilder(DscommerceApplication.class)
+            .profiles("test")
+            .properties("server.port=0", "spring.jpa.show-sql=false",
+                        "spring.mail.username=benchmark@localhost", "spring.mail.password=")
+            .run();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        orderService = context.getBean(OrderService.class);
+
+        order = new OrderDTO(null, null, null, null, null);
+        order.getItems().add(new OrderItemDTO(HOT_PRODUCT_ID, null, 1.0, 1, null));
+    }
+
+    @Setup(Level.Iteration)
+    public void seedStock(){
+        jdbcTemplate.update("UPDATE products SET stock = ? WHERE id = ?", initialStock, HOT_PRODUCT_ID);
+        accepted.set(0);
+    }
+
+    // every accepted order takes one unit, so anything accepted past the initial stock was oversold
+    @TearDown(Level.Iteration)
+    public void reportOversell(){
+        Integer finalStock = jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, HOT_PRODUCT_ID);
+        long oversell = Math.max(0, accepted.get() - initialStock);
+        System.out.printf("%naccepted: %d of %d, oversell: %d, final stock: %d%n", accepted.get(), initialStock, oversell, finalStock);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        context.close();
+    }
+
+    @Benchmark
+    public OrderDTO checkoutHotProduct(Client client){
+        try {
+            OrderDTO result = orderService.insert(order);
+            accepted.incrementAndGet();
+            client.orders++;
+            return result;
+        }
+        catch (InsufficientStockException e) {
+            client.rejections++;
+            return null;
+        }
+    }
+}
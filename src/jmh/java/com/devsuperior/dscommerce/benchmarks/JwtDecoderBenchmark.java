@@ -0,0 +1,86 @@
+package com.devsuperior.dscommerce.benchmarks;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.security.oauth2.server.authorization.config.annotation.web.configuration.OAuth2AuthorizationServerConfiguration;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+
+import com.devsuperior.dscommerce.config.jwk.SigningKeys;
+import com.devsuperior.dscommerce.config.jwt.VerifiedJwtCache;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// per-request cost of turning a bearer token into an authentication, as the resource server does it
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtDecoderBenchmark {
+
+    private String token;
+    private JwtDecoder decoder;
+    private JwtAuthenticationConverter converter;
+    private JwtDecoder cachedDecoder;
+    private JwtAuthenticationConverter cachedConverter;
+
+    @Setup
+    public void setup(){
+        JWKSource<SecurityContext> jwkSource = new ImmutableJWKSet<>(new JWKSet(SigningKeys.rsa()));
+        Instant now = Instant.now();
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+            .subject("maria@gmail.com")
+            .issuedAt(now)
+            .expiresAt(now.plusSeconds(86400))
+            .claim("username", "maria@gmail.com")
+            .claim("authorities", List.of("ROLE_CLIENT", "ROLE_ADMIN"))
+            .claim("scope", List.of("read", "write"))
+            .build();
+        token = new NimbusJwtEncoder(jwkSource).encode(JwtEncoderParameters.from(claims)).getTokenValue();
+
+        JwtGrantedAuthoritiesConverter authorities = new JwtGrantedAuthoritiesConverter();
+        authorities.setAuthoritiesClaimName("authorities");
+        authorities.setAuthorityPrefix("");
+        decoder = OAuth2AuthorizationServerConfiguration.jwtDecoder(jwkSource);
+        converter = new JwtAuthenticationConverter();
+        converter.setJwtGrantedAuthoritiesConverter(authorities);
+
+        VerifiedJwtCache cache = new VerifiedJwtCache(10000, authorities, new SimpleMeterRegistry());
+        cachedDecoder = cache.decoder(decoder);
+        cachedConverter = new JwtAuthenticationConverter();
+        cachedConverter.setJwtGrantedAuthoritiesConverter(cache.authoritiesConverter());
+    }
+
+    @Benchmark
+    public AbstractAuthenticationToken verifyEveryRequest(){
+        return converter.convert(decoder.decode(token));
+    }
+
+    @Benchmark
+    public AbstractAuthenticationToken verifiedJwtCache(){
+        return cachedConverter.convert(cachedDecoder.decode(token));
+    }
+}
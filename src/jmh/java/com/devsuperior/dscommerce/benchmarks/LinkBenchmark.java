@@ -0,0 +1,92 @@
+package com.devsuperior.dscommerce.benchmarks;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.devsuperior.dscommerce.controllers.ProductController;
+import com.devsuperior.dscommerce.dtos.ProductMinDTO;
+import com.devsuperior.dscommerce.util.LinkTemplate;
+
+// links for one page of GET /products/categories, as ProductService adds them
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LinkBenchmark {
+
+    private static final LinkTemplate PRODUCT_BY_ID = LinkTemplate.of(ProductController.class, "findById", Long.class);
+    private static final LinkTemplate PRODUCTS_WITH_CATEGORIES = LinkTemplate.of(ProductController.class, "searchProductsWithCategories", String.class, String.class, Pageable.class);
+
+    @Param("100")
+    private int pageSize;
+
+    private final String categoryIds = "1,3";
+    private final String name = "pc gamer";
+
+    @Setup(Level.Trial)
+    public void setup(){
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/products/categories");
+        request.setServerName("shop.example.com");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public List<ProductMinDTO> linkToMethodOn(){
+        List<ProductMinDTO> page = page();
+        for (ProductMinDTO x : page) {
+            x.add(linkTo(methodOn(ProductController.class).findById(x.getId())).withRel("Consultar Produto por Id"))
+             .add(linkTo(methodOn(ProductController.class).searchProductsWithCategories(categoryIds, name, null)).withSelfRel());
+        }
+        return page;
+    }
+
+    @Benchmark
+    public List<ProductMinDTO> linkTemplate(){
+        List<ProductMinDTO> page = page();
+        String baseUri = LinkTemplate.currentBaseUri();
+        Link self = PRODUCTS_WITH_CATEGORIES.link(baseUri, IanaLinkRelations.SELF, categoryIds, name);
+        for (ProductMinDTO x : page) {
+            x.add(PRODUCT_BY_ID.link(baseUri, "Consultar Produto por Id", x.getId())).add(self);
+        }
+        return page;
+    }
+
+    private List<ProductMinDTO> page(){
+        List<ProductMinDTO> page = new ArrayList<>(pageSize);
+        for (long i = 1; i <= pageSize; i++) {
+            page.add(new ProductMinDTO(i, "PC Gamer " + i, 1200.0, "url"));
+        }
+        return page;
+    }
+}
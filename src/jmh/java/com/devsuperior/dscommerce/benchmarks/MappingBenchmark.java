@@ -0,0 +1,91 @@
+package com.devsuperior.dscommerce.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.devsuperior.dscommerce.dtos.OrderDTO;
+import com.devsuperior.dscommerce.dtos.ProductDTO;
+import com.devsuperior.dscommerce.dtos.UserDTO;
+import com.devsuperior.dscommerce.entities.Order;
+import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.entities.User;
+import com.devsuperior.dscommerce.projections.IdProjection;
+import com.devsuperior.dscommerce.util.Utills;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+    @Param("20")
+    private int pageSize;
+
+    @Param("5")
+    private int orderItems;
+
+    private Product product;
+    private List<Product> page;
+    private List<Product> shuffled;
+    private List<Long> ids;
+    private Order order;
+    private User user;
+
+    @Setup
+    public void setup(){
+        product = BenchmarkData.product(1L);
+        page = BenchmarkData.products(pageSize);
+        shuffled = new ArrayList<>(page);
+        Collections.shuffle(shuffled, new Random(42));
+        ids = page.stream().map(Product::getId).toList();
+        order = BenchmarkData.order(orderItems);
+        user = BenchmarkData.user();
+    }
+
+    @Benchmark
+    public ProductDTO productDTO(){
+        return new ProductDTO(product);
+    }
+
+    @Benchmark
+    public List<ProductDTO> productDTOPage(){
+        return page.stream().map(ProductDTO::new).toList();
+    }
+
+    @Benchmark
+    public OrderDTO orderDTO(){
+        return new OrderDTO(order);
+    }
+
+    @Benchmark
+    public UserDTO userDTO(){
+        return new UserDTO(user);
+    }
+
+    @Benchmark
+    public List<? extends IdProjection<Long>> utillsReplace(){
+        return Utills.replace(page, shuffled);
+    }
+
+    @Benchmark
+    public List<Product> utillsOrderByIds(){
+        return Utills.orderByIds(ids, shuffled);
+    }
+}
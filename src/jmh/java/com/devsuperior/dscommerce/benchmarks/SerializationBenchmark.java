@@ -0,0 +1,101 @@
+package com.devsuperior.dscommerce.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.devsuperior.dscommerce.controllers.ProductController;
+import com.devsuperior.dscommerce.dtos.CountedPageDTO;
+import com.devsuperior.dscommerce.dtos.OrderDTO;
+import com.devsuperior.dscommerce.dtos.ProductDTO;
+import com.devsuperior.dscommerce.dtos.UserDTO;
+import com.devsuperior.dscommerce.util.LinkTemplate;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// response bodies as the controllers write them: links rendered as HAL _links, the default JSON of spring-boot-starter-hateoas
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final String BASE_URI = "http://localhost:8080";
+    private static final LinkTemplate PRODUCT_BY_ID = LinkTemplate.of(ProductController.class, "findById", Long.class);
+    private static final LinkTemplate PRODUCTS_WITH_CATEGORIES = LinkTemplate.of(ProductController.class, "searchProductsWithCategories", String.class, String.class, Pageable.class);
+
+    @Param("20")
+    private int pageSize;
+
+    private ObjectMapper mapper;
+    private ProductDTO product;
+    private CountedPageDTO<ProductDTO> page;
+    private OrderDTO order;
+    private UserDTO user;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        // what HalMediaTypeConfiguration does to the application's mapper for the HAL converter
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        mapper.registerModule(new Jackson2HalModule());
+        mapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(new DefaultLinkRelationProvider(), CurieProvider.NONE,
+                                                                                   MessageResolver.DEFAULTS_ONLY));
+
+        product = new ProductDTO(BenchmarkData.product(1L)).add(PRODUCT_BY_ID.link(BASE_URI, IanaLinkRelations.SELF, 1L));
+
+        Link self = PRODUCTS_WITH_CATEGORIES.link(BASE_URI, IanaLinkRelations.SELF, "1,3", "");
+        List<ProductDTO> content = BenchmarkData.products(pageSize).stream()
+            .map(x -> new ProductDTO(x).add(PRODUCT_BY_ID.link(BASE_URI, "Consultar Produto por Id", x.getId())).add(self))
+            .toList();
+        page = new CountedPageDTO<>(content, PageRequest.of(0, pageSize), 25L, true);
+
+        order = new OrderDTO(BenchmarkData.order(5));
+        user = new UserDTO(BenchmarkData.user());
+
+        if (!new String(productDTO()).contains("\"_links\"")) {
+            throw new IllegalStateException("ProductDTO was not written as HAL");
+        }
+    }
+
+    @Benchmark
+    public byte[] productDTO() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public byte[] productDTOPage() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] orderDTO() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(order);
+    }
+
+    @Benchmark
+    public byte[] userDTO() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(user);
+    }
+}
@@ -0,0 +1,107 @@
+package com.devsuperior.dscommerce.benchmarks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.config.annotation.web.configuration.OAuth2AuthorizationServerConfiguration;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContext;
+import org.springframework.security.oauth2.server.authorization.settings.AuthorizationServerSettings;
+import org.springframework.security.oauth2.server.authorization.settings.OAuth2TokenFormat;
+import org.springframework.security.oauth2.server.authorization.settings.TokenSettings;
+import org.springframework.security.oauth2.server.authorization.token.DefaultOAuth2TokenContext;
+import org.springframework.security.oauth2.server.authorization.token.JwtGenerator;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenContext;
+
+import com.devsuperior.dscommerce.config.AuthorizationServerConfig;
+import com.devsuperior.dscommerce.config.customgrant.CustomPasswordAuthenticationToken;
+import com.devsuperior.dscommerce.config.jwk.RotatingJwkSet;
+import com.devsuperior.dscommerce.config.jwk.SigningKeys;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// issuing and verifying an access token of the password grant, with the real tokenCustomizer() claims
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SigningAlgorithmBenchmark {
+
+    @Param({"RS256", "ES256"})
+    private String algorithm;
+
+    private JwtGenerator generator;
+    private OAuth2TokenContext context;
+    private JwtDecoder decoder;
+    private String token;
+
+    @Setup
+    public void setup(){
+        RotatingJwkSet jwkSet = new RotatingJwkSet(null, Duration.ZERO, Duration.ZERO, Duration.ofDays(1),
+                                                   SigningKeys.generator(SignatureAlgorithm.from(algorithm)), new SimpleMeterRegistry());
+        generator = new JwtGenerator(new NimbusJwtEncoder(jwkSet.signingKeys()));
+        generator.setJwtCustomizer(new AuthorizationServerConfig().tokenCustomizer(jwkSet));
+        decoder = OAuth2AuthorizationServerConfiguration.jwtDecoder(jwkSet.verificationKeys());
+
+        RegisteredClient client = RegisteredClient.withId("myclientid")
+            .clientId("myclientid")
+            .scope("read")
+            .scope("write")
+            .authorizationGrantType(CustomPasswordAuthenticationToken.PASSWORD)
+            .tokenSettings(TokenSettings.builder().accessTokenFormat(OAuth2TokenFormat.SELF_CONTAINED).build())
+            .build();
+        AuthorizationServerContext serverContext = new AuthorizationServerContext() {
+            @Override
+            public String getIssuer() {
+                return "http://localhost:8080";
+            }
+
+            @Override
+            public AuthorizationServerSettings getAuthorizationServerSettings() {
+                return AuthorizationServerSettings.builder().build();
+            }
+        };
+        context = DefaultOAuth2TokenContext.builder()
+            .registeredClient(client)
+            .principal(UsernamePasswordAuthenticationToken.authenticated("maria@gmail.com", null,
+                       List.of(new SimpleGrantedAuthority("ROLE_CLIENT"), new SimpleGrantedAuthority("ROLE_ADMIN"))))
+            .authorizationServerContext(serverContext)
+            .authorizedScopes(Set.of("read", "write"))
+            .authorizationGrantType(CustomPasswordAuthenticationToken.PASSWORD)
+            .tokenType(OAuth2TokenType.ACCESS_TOKEN)
+            .build();
+        token = issue().getTokenValue();
+    }
+
+    @Benchmark
+    public Jwt issue(){
+        return generator.generate(context);
+    }
+
+    @Benchmark
+    public Jwt verify(){
+        return decoder.decode(token);
+    }
+}
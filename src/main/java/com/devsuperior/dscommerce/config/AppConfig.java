@@ -1,15 +1,40 @@
 package com.devsuperior.dscommerce.config;
 
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import com.devsuperior.dscommerce.config.hashing.BulkheadPasswordEncoder;
+import com.devsuperior.dscommerce.config.hashing.PasswordHashing;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Configuration
 public class AppConfig {
 
-    @Bean
-	public PasswordEncoder passwordEncoder() {
-		return new BCryptPasswordEncoder();
+    @Value("${security.password-hashing.threads}")
+    private Integer hashingThreads;
+
+    @Value("${security.password-hashing.queue-capacity}")
+    private Integer hashingQueueCapacity;
+
+    @Value("${security.password-hashing.bcrypt-strength}")
+    private Integer bcryptStrength;
+
+    @Value("${security.password-hashing.target-millis}")
+    private Long hashingTargetMillis;
+
+    @Bean(destroyMethod = "shutdown")
+	public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+		// 0 leaves half of the cores to the read path
+		int threads = (hashingThreads > 0) ? hashingThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+		// 0 calibrates the cost on this hardware so a verification takes about target-millis
+		int strength = (bcryptStrength > 0) ? bcryptStrength : PasswordHashing.calibrateBCryptStrength(Duration.ofMillis(hashingTargetMillis));
+		Gauge.builder("dscommerce.password.hashing.cost", () -> strength).tag("algorithm", PasswordHashing.BCRYPT).register(meterRegistry);
+		return new BulkheadPasswordEncoder(PasswordHashing.encoder(strength), threads, hashingQueueCapacity, meterRegistry);
 	}
 }
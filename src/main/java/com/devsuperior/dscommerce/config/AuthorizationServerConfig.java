@@ -1,31 +1,36 @@
 package com.devsuperior.dscommerce.config;
 
-import java.security.KeyPair;
-import java.security.KeyPairGenerator;
-import java.security.interfaces.RSAPrivateKey;
-import java.security.interfaces.RSAPublicKey;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.List;
-import java.util.UUID;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.core.AuthorizationGrantType;
 import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
 import org.springframework.security.oauth2.server.authorization.InMemoryOAuth2AuthorizationConsentService;
-import org.springframework.security.oauth2.server.authorization.InMemoryOAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.authentication.ClientSecretAuthenticationProvider;
 import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationConsentService;
-import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
-import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
 import org.springframework.security.oauth2.server.authorization.client.InMemoryRegisteredClientRepository;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
@@ -39,21 +44,37 @@ import org.springframework.security.oauth2.server.authorization.token.Delegating
 import org.springframework.security.oauth2.server.authorization.token.JwtEncodingContext;
 import org.springframework.security.oauth2.server.authorization.token.JwtGenerator;
 import org.springframework.security.oauth2.server.authorization.token.OAuth2AccessTokenGenerator;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2RefreshTokenGenerator;
 import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenCustomizer;
 import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenGenerator;
 import org.springframework.security.web.SecurityFilterChain;
 
+import com.devsuperior.dscommerce.config.authorization.CaffeineOAuth2AuthorizationService;
+import com.devsuperior.dscommerce.config.authorization.JdbcAuthorizationSweeper;
+import com.devsuperior.dscommerce.config.authorization.JdbcPrincipalAuthorizationService;
+import com.devsuperior.dscommerce.config.authorization.PrincipalAuthorizationService;
 import com.devsuperior.dscommerce.config.customgrant.CustomPasswordAuthenticationConverter;
 import com.devsuperior.dscommerce.config.customgrant.CustomPasswordAuthenticationProvider;
-import com.devsuperior.dscommerce.config.customgrant.CustomUserAuthorities;
-import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.RSAKey;
+import com.devsuperior.dscommerce.config.customgrant.CustomPasswordAuthenticationToken;
+import com.devsuperior.dscommerce.config.customgrant.TokenErrorResponseHandler;
+import com.devsuperior.dscommerce.config.hashing.PasswordHashing;
+import com.devsuperior.dscommerce.config.jwk.RotatingJwkSet;
+import com.devsuperior.dscommerce.config.jwk.SigningKeys;
+import com.devsuperior.dscommerce.config.jwt.VerifiedJwtCache;
+import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.jose.proc.SecurityContext;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Configuration
 public class AuthorizationServerConfig {
 
+	// the PasswordEncoder bean is the bounded bcrypt pool, meant for user passwords only
+	private static final PasswordEncoder CLIENT_SECRET_ENCODER = PasswordHashing.clientSecretEncoder();
+
+	private static final String AUTHORIZATION_SCHEMA = "org/springframework/security/oauth2/server/authorization/oauth2-authorization-schema.sql";
+
 	@Value("${security.client-id}")
 	private String clientId;
 
@@ -63,12 +84,48 @@ public class AuthorizationServerConfig {
 	@Value("${security.jwt.duration}")
 	private Integer jwtDurationSeconds;
 
+	@Value("${security.refresh-token.duration}")
+	private Integer refreshTokenDurationSeconds;
+
+	@Value("${security.jwk.path}")
+	private String jwkPath;
+
+	@Value("${security.jwk.algorithm}")
+	private String jwkAlgorithm;
+
+	@Value("${security.jwk.rotation-interval-seconds}")
+	private Long jwkRotationSeconds;
+
+	@Value("${security.jwk.refresh-interval-seconds}")
+	private Long jwkRefreshSeconds;
+
+	@Value("${security.authorization-store.type}")
+	private String authorizationStore;
+
+	@Value("${security.authorization-store.max-size}")
+	private Long authorizationStoreMaxSize;
+
+	@Value("${security.authorization-store.initialize-schema}")
+	private Boolean authorizationStoreInitializeSchema;
+
 	@Autowired
 	private UserDetailsService userDetailsService;
 
+	@Autowired
+	private UserDetailsPasswordService userDetailsPasswordService;
+
 	@Autowired
 	private PasswordEncoder passwordEncoder;
 
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private JdbcOperations jdbcOperations;
+
 	@Bean
 	@Order(2)
 	public SecurityFilterChain asSecurityFilterChain(HttpSecurity http) throws Exception {
@@ -77,9 +134,16 @@ public class AuthorizationServerConfig {
 
 		// @formatter:off
 		http.getConfigurer(OAuth2AuthorizationServerConfigurer.class)
+			.clientAuthentication(clientAuthentication -> clientAuthentication
+				.authenticationProviders(providers -> providers.forEach(provider -> {
+					if (provider instanceof ClientSecretAuthenticationProvider clientSecretProvider) {
+						clientSecretProvider.setPasswordEncoder(CLIENT_SECRET_ENCODER);
+					}
+				})))
 			.tokenEndpoint(tokenEndpoint -> tokenEndpoint
 				.accessTokenRequestConverter(new CustomPasswordAuthenticationConverter())
-				.authenticationProvider(new CustomPasswordAuthenticationProvider(authorizationService(), tokenGenerator(), userDetailsService, passwordEncoder)));
+				.authenticationProvider(new CustomPasswordAuthenticationProvider(authorizationService(), tokenGenerator(), userDetailsService, userDetailsPasswordService, passwordEncoder, meterRegistry))
+				.errorResponseHandler(new TokenErrorResponseHandler()));
 
 		http.oauth2ResourceServer(oauth2ResourceServer -> oauth2ResourceServer.jwt(Customizer.withDefaults()));
 		// @formatter:on
@@ -88,8 +152,23 @@ public class AuthorizationServerConfig {
 	}
 
 	@Bean
-	public OAuth2AuthorizationService authorizationService() {
-		return new InMemoryOAuth2AuthorizationService();
+	public PrincipalAuthorizationService authorizationService() {
+		if ("jdbc".equals(authorizationStore)) {
+			if (authorizationStoreInitializeSchema) {
+				ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource(AUTHORIZATION_SCHEMA));
+				// the script has no IF NOT EXISTS, so a second start just fails on the existing table
+				populator.setContinueOnError(true);
+				DatabasePopulatorUtils.execute(populator, dataSource);
+			}
+			return new JdbcPrincipalAuthorizationService(jdbcOperations, registeredClientRepository());
+		}
+		return new CaffeineOAuth2AuthorizationService(authorizationStoreMaxSize, Duration.ofSeconds(jwtDurationSeconds), meterRegistry);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "security.authorization-store.type", havingValue = "jdbc")
+	public JdbcAuthorizationSweeper jdbcAuthorizationSweeper() {
+		return new JdbcAuthorizationSweeper(jdbcOperations, meterRegistry);
 	}
 
 	@Bean
@@ -101,12 +180,14 @@ public class AuthorizationServerConfig {
 	public RegisteredClientRepository registeredClientRepository() {
 		// @formatter:off
 		RegisteredClient registeredClient = RegisteredClient
-			.withId(UUID.randomUUID().toString())
+			// stable id, stored authorizations refer to it across restarts and nodes
+			.withId(clientId)
 			.clientId(clientId)
-			.clientSecret(passwordEncoder.encode(clientSecret))
+			.clientSecret(CLIENT_SECRET_ENCODER.encode(clientSecret))
 			.scope("read")
 			.scope("write")
-			.authorizationGrantType(new AuthorizationGrantType("password"))
+			.authorizationGrantType(CustomPasswordAuthenticationToken.PASSWORD)
+			.authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN)
 			.tokenSettings(tokenSettings())
 			.clientSettings(clientSettings())
 			.build();
@@ -121,6 +202,9 @@ public class AuthorizationServerConfig {
 		return TokenSettings.builder()
 			.accessTokenFormat(OAuth2TokenFormat.SELF_CONTAINED)
 			.accessTokenTimeToLive(Duration.ofSeconds(jwtDurationSeconds))
+			.refreshTokenTimeToLive(Duration.ofSeconds(refreshTokenDurationSeconds))
+			// rotation: each refresh issues a new refresh token and the used one stops working
+			.reuseRefreshTokens(false)
 			.build();
 		// @formatter:on
 	}
@@ -137,57 +221,49 @@ public class AuthorizationServerConfig {
 
 	@Bean
 	public OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator() {
-		NimbusJwtEncoder jwtEncoder = new NimbusJwtEncoder(jwkSource());
+		NimbusJwtEncoder jwtEncoder = new NimbusJwtEncoder(rotatingJwkSet().signingKeys());
 		JwtGenerator jwtGenerator = new JwtGenerator(jwtEncoder);
-		jwtGenerator.setJwtCustomizer(tokenCustomizer());
+		jwtGenerator.setJwtCustomizer(tokenCustomizer(rotatingJwkSet()));
 		OAuth2AccessTokenGenerator accessTokenGenerator = new OAuth2AccessTokenGenerator();
-		return new DelegatingOAuth2TokenGenerator(jwtGenerator, accessTokenGenerator);
+		OAuth2RefreshTokenGenerator refreshTokenGenerator = new OAuth2RefreshTokenGenerator();
+		return new DelegatingOAuth2TokenGenerator(jwtGenerator, accessTokenGenerator, refreshTokenGenerator);
 	}
 
 	@Bean
-	public OAuth2TokenCustomizer<JwtEncodingContext> tokenCustomizer() {
+	public OAuth2TokenCustomizer<JwtEncodingContext> tokenCustomizer(RotatingJwkSet rotatingJwkSet) {
 		return context -> {
-			OAuth2ClientAuthenticationToken principal = context.getPrincipal();
-			CustomUserAuthorities user = (CustomUserAuthorities) principal.getDetails();
-			List<String> authorities = user.getAuthorities().stream().map(x -> x.getAuthority()).toList();
+			// JwtGenerator always asks for RS256; the active key decides, and its kid pins the exact key
+			JWK signingKey = rotatingJwkSet.activeKey();
+			context.getJwsHeader().algorithm(SigningKeys.algorithmOf(signingKey)).keyId(signingKey.getKeyID());
+			// the resource owner, from the password grant or read back from the authorization on refresh
+			Authentication principal = context.getPrincipal();
+			// a mutable list: the JDBC authorization store's Jackson allowlist rejects JDK immutable collections
+			List<String> authorities = principal.getAuthorities().stream().map(x -> x.getAuthority()).collect(Collectors.toList());
 			if (context.getTokenType().getValue().equals("access_token")) {
 				// @formatter:off
 				context.getClaims()
 					.claim("authorities", authorities)
-					.claim("username", user.getUsername());
+					.claim("username", principal.getName());
 				// @formatter:on
 			}
 		};
 	}
 
 	@Bean
-	public JwtDecoder jwtDecoder(JWKSource<SecurityContext> jwkSource) {
-		return OAuth2AuthorizationServerConfiguration.jwtDecoder(jwkSource);
+	public JwtDecoder jwtDecoder(JWKSource<SecurityContext> jwkSource, VerifiedJwtCache verifiedJwtCache) {
+		return verifiedJwtCache.decoder(OAuth2AuthorizationServerConfiguration.jwtDecoder(jwkSource));
 	}
 
 	@Bean
-	public JWKSource<SecurityContext> jwkSource() {
-		RSAKey rsaKey = generateRsa();
-		JWKSet jwkSet = new JWKSet(rsaKey);
-		return (jwkSelector, securityContext) -> jwkSelector.select(jwkSet);
-	}
-
-	private static RSAKey generateRsa() {
-		KeyPair keyPair = generateRsaKey();
-		RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
-		RSAPrivateKey privateKey = (RSAPrivateKey) keyPair.getPrivate();
-		return new RSAKey.Builder(publicKey).privateKey(privateKey).keyID(UUID.randomUUID().toString()).build();
+	public RotatingJwkSet rotatingJwkSet() {
+		Path path = jwkPath.isBlank() ? null : Path.of(jwkPath);
+		return new RotatingJwkSet(path, Duration.ofSeconds(jwkRotationSeconds), Duration.ofSeconds(jwkRefreshSeconds),
+				Duration.ofSeconds(jwtDurationSeconds), SigningKeys.generator(SignatureAlgorithm.from(jwkAlgorithm)), meterRegistry);
 	}
 
-	private static KeyPair generateRsaKey() {
-		KeyPair keyPair;
-		try {
-			KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
-			keyPairGenerator.initialize(2048);
-			keyPair = keyPairGenerator.generateKeyPair();
-		} catch (Exception ex) {
-			throw new IllegalStateException(ex);
-		}
-		return keyPair;
+	@Bean
+	public JWKSource<SecurityContext> jwkSource() {
+		// every published key, for the decoder and /oauth2/jwks; only the active key signs
+		return rotatingJwkSet().verificationKeys();
 	}
 }
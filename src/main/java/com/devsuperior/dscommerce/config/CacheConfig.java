@@ -0,0 +1,75 @@
+package com.devsuperior.dscommerce.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String PRODUCTS = "products";
+    public static final String PRODUCT_COUNTS = "productCounts";
+    public static final String AUTHENTICATED_USERS = "authenticatedUsers";
+    public static final String USER_DETAILS = "userDetails";
+
+    @Value("${cache.products.max-size}")
+    private Long productsMaxSize;
+
+    @Value("${cache.products.ttl-seconds}")
+    private Long productsTtlSeconds;
+
+    @Value("${cache.product-counts.max-size}")
+    private Long productCountsMaxSize;
+
+    @Value("${cache.product-counts.ttl-seconds}")
+    private Long productCountsTtlSeconds;
+
+    @Value("${cache.authenticated-users.max-size}")
+    private Long authenticatedUsersMaxSize;
+
+    @Value("${cache.authenticated-users.ttl-seconds}")
+    private Long authenticatedUsersTtlSeconds;
+
+    @Value("${cache.user-details.max-size}")
+    private Long userDetailsMaxSize;
+
+    @Value("${cache.user-details.ttl-seconds}")
+    private Long userDetailsTtlSeconds;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setAllowNullValues(false);
+        cacheManager.registerCustomCache(PRODUCTS, Caffeine.newBuilder()
+                .maximumSize(productsMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(productsTtlSeconds))
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(PRODUCT_COUNTS, Caffeine.newBuilder()
+                .maximumSize(productCountsMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(productCountsTtlSeconds))
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(AUTHENTICATED_USERS, Caffeine.newBuilder()
+                .maximumSize(authenticatedUsersMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(authenticatedUsersTtlSeconds))
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(USER_DETAILS, Caffeine.newBuilder()
+                .maximumSize(userDetailsMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(userDetailsTtlSeconds))
+                .recordStats()
+                .build());
+        // puts only become visible after the surrounding transaction commits
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
@@ -0,0 +1,66 @@
+package com.devsuperior.dscommerce.config;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import com.devsuperior.dscommerce.config.idempotency.CaffeineIdempotencyStore;
+import com.devsuperior.dscommerce.config.idempotency.IdempotencyStore;
+import com.devsuperior.dscommerce.config.idempotency.JdbcIdempotencyStore;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class IdempotencyConfig {
+
+    @Value("${idempotency.store.type}")
+    private String storeType;
+
+    @Value("${idempotency.store.max-size}")
+    private Long maxSize;
+
+    @Value("${idempotency.store.initialize-schema}")
+    private Boolean initializeSchema;
+
+    @Value("${idempotency.ttl-seconds}")
+    private Long ttlSeconds;
+
+    @Value("${idempotency.lease-seconds}")
+    private Long leaseSeconds;
+
+    @Value("${idempotency.poll-interval-millis}")
+    private Long pollIntervalMillis;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcOperations jdbcOperations;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Bean
+    public IdempotencyStore idempotencyStore() {
+        if ("jdbc".equals(storeType)) {
+            if (initializeSchema) {
+                ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource(JdbcIdempotencyStore.SCHEMA));
+                // same as the authorization store: a second start just fails on the existing table
+                populator.setContinueOnError(true);
+                DatabasePopulatorUtils.execute(populator, dataSource);
+            }
+            return new JdbcIdempotencyStore(jdbcOperations, Duration.ofSeconds(ttlSeconds), Duration.ofSeconds(leaseSeconds),
+                                            Duration.ofMillis(pollIntervalMillis), meterRegistry);
+        }
+        return new CaffeineIdempotencyStore(maxSize, Duration.ofSeconds(ttlSeconds), meterRegistry);
+    }
+}
@@ -0,0 +1,208 @@
+package com.devsuperior.dscommerce.config.authorization;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationCode;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.util.Assert;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// bounded replacement for InMemoryOAuth2AuthorizationService: entries live until their last token expires
+// (or for the default ttl when they carry none) and the system scheduler sweeps them in the background
+public class CaffeineOAuth2AuthorizationService implements PrincipalAuthorizationService {
+
+    private static final List<Class<? extends OAuth2Token>> TOKEN_TYPES =
+            List.of(OAuth2AuthorizationCode.class, OAuth2AccessToken.class, OAuth2RefreshToken.class);
+
+    private final Cache<String, OAuth2Authorization> authorizations;
+    private final Map<String, String> idsByToken = new ConcurrentHashMap<>();
+
+    public CaffeineOAuth2AuthorizationService(long maxSize, Duration defaultTtl, MeterRegistry meterRegistry) {
+        this(maxSize, defaultTtl, meterRegistry, Ticker.systemTicker(), ForkJoinPool.commonPool());
+    }
+
+    CaffeineOAuth2AuthorizationService(long maxSize, Duration defaultTtl, MeterRegistry meterRegistry, Ticker ticker, Executor executor) {
+        Assert.isTrue(maxSize > 0, "maxSize must be greater than zero");
+        Assert.notNull(defaultTtl, "defaultTtl cannot be null");
+        this.authorizations = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenExpiry(defaultTtl))
+                .scheduler(Scheduler.systemScheduler())
+                .ticker(ticker)
+                .executor(executor)
+                .evictionListener((String id, OAuth2Authorization authorization, RemovalCause cause) -> unindex(id, tokenValues(authorization)))
+                .recordStats()
+                .build();
+        Gauge.builder("dscommerce.oauth2.authorizations", authorizations, Cache::estimatedSize)
+                .tag("store", "memory")
+                .register(meterRegistry);
+        FunctionCounter.builder("dscommerce.oauth2.authorizations.evictions", authorizations, x -> x.stats().evictionCount())
+                .tag("store", "memory")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void save(OAuth2Authorization authorization) {
+        Assert.notNull(authorization, "authorization cannot be null");
+        Set<String> tokens = tokenValues(authorization);
+        OAuth2Authorization previous = authorizations.asMap().put(authorization.getId(), authorization);
+        if (previous != null) {
+            Set<String> replaced = tokenValues(previous);
+            replaced.removeAll(tokens);
+            unindex(authorization.getId(), replaced);
+        }
+        tokens.forEach(token -> idsByToken.put(token, authorization.getId()));
+    }
+
+    @Override
+    public void remove(OAuth2Authorization authorization) {
+        Assert.notNull(authorization, "authorization cannot be null");
+        OAuth2Authorization removed = authorizations.asMap().remove(authorization.getId());
+        if (removed != null) {
+            unindex(authorization.getId(), tokenValues(removed));
+        }
+    }
+
+    // a full scan, but it only runs when a user changes, never on a token request
+    @Override
+    public int removeByPrincipalName(String principalName) {
+        Assert.hasText(principalName, "principalName cannot be empty");
+        int removed = 0;
+        for (OAuth2Authorization authorization : List.copyOf(authorizations.asMap().values())) {
+            if (principalName.equals(authorization.getPrincipalName())) {
+                remove(authorization);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public OAuth2Authorization findById(String id) {
+        Assert.hasText(id, "id cannot be empty");
+        return authorizations.getIfPresent(id);
+    }
+
+    @Override
+    public OAuth2Authorization findByToken(String token, OAuth2TokenType tokenType) {
+        Assert.hasText(token, "token cannot be empty");
+        String id = idsByToken.get(token);
+        if (id == null) {
+            return null;
+        }
+        OAuth2Authorization authorization = authorizations.getIfPresent(id);
+        if (authorization == null) {
+            // expired but not swept yet
+            idsByToken.remove(token, id);
+            return null;
+        }
+        return hasToken(authorization, token, tokenType) ? authorization : null;
+    }
+
+    long size() {
+        authorizations.cleanUp();
+        return authorizations.estimatedSize();
+    }
+
+    int indexedTokens() {
+        return idsByToken.size();
+    }
+
+    private void unindex(String id, Set<String> tokens) {
+        tokens.forEach(token -> idsByToken.remove(token, id));
+    }
+
+    private static boolean hasToken(OAuth2Authorization authorization, String token, OAuth2TokenType tokenType) {
+        if (tokenType == null) {
+            return tokenValues(authorization).contains(token);
+        }
+        if (OAuth2ParameterNames.STATE.equals(tokenType.getValue())) {
+            return token.equals(authorization.getAttribute(OAuth2ParameterNames.STATE));
+        }
+        if (OAuth2ParameterNames.CODE.equals(tokenType.getValue())) {
+            return matches(authorization.getToken(OAuth2AuthorizationCode.class), token);
+        }
+        if (OAuth2TokenType.ACCESS_TOKEN.equals(tokenType)) {
+            return matches(authorization.getToken(OAuth2AccessToken.class), token);
+        }
+        if (OAuth2TokenType.REFRESH_TOKEN.equals(tokenType)) {
+            return matches(authorization.getToken(OAuth2RefreshToken.class), token);
+        }
+        return false;
+    }
+
+    private static boolean matches(OAuth2Authorization.Token<?> stored, String token) {
+        return stored != null && stored.getToken().getTokenValue().equals(token);
+    }
+
+    private static Set<String> tokenValues(OAuth2Authorization authorization) {
+        Set<String> values = new HashSet<>();
+        String state = authorization.getAttribute(OAuth2ParameterNames.STATE);
+        if (state != null) {
+            values.add(state);
+        }
+        for (Class<? extends OAuth2Token> type : TOKEN_TYPES) {
+            OAuth2Authorization.Token<? extends OAuth2Token> token = authorization.getToken(type);
+            if (token != null) {
+                values.add(token.getToken().getTokenValue());
+            }
+        }
+        return values;
+    }
+
+    private static class TokenExpiry implements Expiry<String, OAuth2Authorization> {
+
+        private final Duration defaultTtl;
+
+        TokenExpiry(Duration defaultTtl) {
+            this.defaultTtl = defaultTtl;
+        }
+
+        @Override
+        public long expireAfterCreate(String id, OAuth2Authorization authorization, long currentTime) {
+            Instant expiresAt = null;
+            for (Class<? extends OAuth2Token> type : TOKEN_TYPES) {
+                OAuth2Authorization.Token<? extends OAuth2Token> token = authorization.getToken(type);
+                Instant tokenExpiresAt = (token == null) ? null : token.getToken().getExpiresAt();
+                if (tokenExpiresAt != null && (expiresAt == null || tokenExpiresAt.isAfter(expiresAt))) {
+                    expiresAt = tokenExpiresAt;
+                }
+            }
+            Duration ttl = (expiresAt == null) ? defaultTtl : Duration.between(Instant.now(), expiresAt);
+            return Math.max(ttl.toNanos(), 0L);
+        }
+
+        @Override
+        public long expireAfterUpdate(String id, OAuth2Authorization authorization, long currentTime, long currentDuration) {
+            return expireAfterCreate(id, authorization, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String id, OAuth2Authorization authorization, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.devsuperior.dscommerce.config.authorization;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// JdbcOAuth2AuthorizationService never deletes rows on its own; this drops the ones whose tokens all expired
+public class JdbcAuthorizationSweeper {
+
+    private static final String DELETE_EXPIRED = """
+            DELETE FROM oauth2_authorization
+            WHERE (authorization_code_expires_at IS NULL OR authorization_code_expires_at < ?)
+            AND (access_token_expires_at IS NULL OR access_token_expires_at < ?)
+            AND (refresh_token_expires_at IS NULL OR refresh_token_expires_at < ?)
+            """;
+
+    private static final String COUNT = "SELECT COUNT(*) FROM oauth2_authorization";
+
+    private final JdbcOperations jdbcOperations;
+    private final Counter evictions;
+
+    public JdbcAuthorizationSweeper(JdbcOperations jdbcOperations, MeterRegistry meterRegistry) {
+        this.jdbcOperations = jdbcOperations;
+        this.evictions = Counter.builder("dscommerce.oauth2.authorizations.evictions")
+                .tag("store", "jdbc")
+                .register(meterRegistry);
+        Gauge.builder("dscommerce.oauth2.authorizations", this, JdbcAuthorizationSweeper::count)
+                .tag("store", "jdbc")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${security.authorization-store.sweep-interval-seconds}", timeUnit = TimeUnit.SECONDS)
+    public int sweep() {
+        Timestamp now = Timestamp.from(Instant.now());
+        int deleted = jdbcOperations.update(DELETE_EXPIRED, now, now, now);
+        evictions.increment(deleted);
+        return deleted;
+    }
+
+    private long count() {
+        Long count = jdbcOperations.queryForObject(COUNT, Long.class);
+        return (count == null) ? 0L : count;
+    }
+}
@@ -0,0 +1,21 @@
+package com.devsuperior.dscommerce.config.authorization;
+
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.security.oauth2.server.authorization.JdbcOAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.util.Assert;
+
+public class JdbcPrincipalAuthorizationService extends JdbcOAuth2AuthorizationService implements PrincipalAuthorizationService {
+
+    private static final String DELETE_BY_PRINCIPAL = "DELETE FROM oauth2_authorization WHERE principal_name = ?";
+
+    public JdbcPrincipalAuthorizationService(JdbcOperations jdbcOperations, RegisteredClientRepository registeredClientRepository) {
+        super(jdbcOperations, registeredClientRepository);
+    }
+
+    @Override
+    public int removeByPrincipalName(String principalName) {
+        Assert.hasText(principalName, "principalName cannot be empty");
+        return getJdbcOperations().update(DELETE_BY_PRINCIPAL, principalName);
+    }
+}
@@ -0,0 +1,9 @@
+package com.devsuperior.dscommerce.config.authorization;
+
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+
+// the stores also answer by resource owner, so a changed, demoted or deleted user loses every refresh token at once
+public interface PrincipalAuthorizationService extends OAuth2AuthorizationService {
+
+    int removeByPrincipalName(String principalName);
+}
@@ -1,15 +1,21 @@
 package com.devsuperior.dscommerce.config.customgrant;
 
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -19,6 +25,7 @@ import org.springframework.security.oauth2.core.OAuth2AccessToken;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
 import org.springframework.security.oauth2.core.OAuth2Error;
 import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
 import org.springframework.security.oauth2.core.OAuth2Token;
 import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
 import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
@@ -32,78 +39,101 @@ import org.springframework.security.oauth2.server.authorization.token.OAuth2Toke
 import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenGenerator;
 import org.springframework.util.Assert;
 
+import com.devsuperior.dscommerce.services.exceptions.ServiceUnavailableException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
 public class CustomPasswordAuthenticationProvider implements AuthenticationProvider {
 
+	private static final Logger log = LoggerFactory.getLogger(CustomPasswordAuthenticationProvider.class);
 	private static final String ERROR_URI = "https://datatracker.ietf.org/doc/html/rfc6749#section-5.2";
+	public static final String TEMPORARILY_UNAVAILABLE = "temporarily_unavailable";
 	private final OAuth2AuthorizationService authorizationService;
 	private final UserDetailsService userDetailsService;
+	private final UserDetailsPasswordService userDetailsPasswordService;
 	private final OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator;
 	private final PasswordEncoder passwordEncoder;
-	private String username = "";
-	private String password = "";
-	private Set<String> authorizedScopes = new HashSet<>();
+	private final Counter grantsIssued;
+	private final Counter grantsRejected;
+	private final Counter grantsUnavailable;
 
 	public CustomPasswordAuthenticationProvider(OAuth2AuthorizationService authorizationService,
 			OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator, 
-			UserDetailsService userDetailsService, PasswordEncoder passwordEncoder) {
+			UserDetailsService userDetailsService, UserDetailsPasswordService userDetailsPasswordService,
+			PasswordEncoder passwordEncoder, MeterRegistry meterRegistry) {
 		
 		Assert.notNull(authorizationService, "authorizationService cannot be null");
 		Assert.notNull(tokenGenerator, "TokenGenerator cannot be null");
 		Assert.notNull(userDetailsService, "UserDetailsService cannot be null");
+		Assert.notNull(userDetailsPasswordService, "UserDetailsPasswordService cannot be null");
 		Assert.notNull(passwordEncoder, "PasswordEncoder cannot be null");
+		Assert.notNull(meterRegistry, "MeterRegistry cannot be null");
 		this.authorizationService = authorizationService;
 		this.tokenGenerator = tokenGenerator;
 		this.userDetailsService = userDetailsService;
+		this.userDetailsPasswordService = userDetailsPasswordService;
 		this.passwordEncoder = passwordEncoder;
+		this.grantsIssued = meterRegistry.counter("dscommerce.auth.password.grants", "outcome", "issued");
+		this.grantsRejected = meterRegistry.counter("dscommerce.auth.password.grants", "outcome", "rejected");
+		this.grantsUnavailable = meterRegistry.counter("dscommerce.auth.password.grants", "outcome", "unavailable");
 	}
 	
 	@Override
 	public Authentication authenticate(Authentication authentication) throws AuthenticationException {
 		
+		// everything below is local to this request: the provider is a singleton shared by concurrent grants
 		CustomPasswordAuthenticationToken customPasswordAuthenticationToken = (CustomPasswordAuthenticationToken) authentication;
 		OAuth2ClientAuthenticationToken clientPrincipal = getAuthenticatedClientElseThrowInvalidClient(customPasswordAuthenticationToken);
 		RegisteredClient registeredClient = clientPrincipal.getRegisteredClient();
-		username = customPasswordAuthenticationToken.getUsername();
-		password = customPasswordAuthenticationToken.getPassword();	
+		String username = customPasswordAuthenticationToken.getUsername();
+		String password = customPasswordAuthenticationToken.getPassword();
 		
-		UserDetails user = null;
+		UserDetails user;
 		try {
 			user = userDetailsService.loadUserByUsername(username);
 		} catch (UsernameNotFoundException e) {
+			grantsRejected.increment();
 			throw new OAuth2AuthenticationException("Invalid credentials");
 		}
 				
-		if (!passwordEncoder.matches(password, user.getPassword()) || !user.getUsername().equals(username)) {
+		boolean passwordMatches;
+		try {
+			passwordMatches = passwordEncoder.matches(password, user.getPassword());
+		} catch (ServiceUnavailableException e) {
+			grantsUnavailable.increment();
+			throw new OAuth2AuthenticationException(new OAuth2Error(TEMPORARILY_UNAVAILABLE, e.getMessage(), ERROR_URI));
+		}
+		if (!passwordMatches || !user.getUsername().equals(username)) {
+			grantsRejected.increment();
 			throw new OAuth2AuthenticationException("Invalid credentials");
 		}
+		List<SimpleGrantedAuthority> authorities = new ArrayList<>(user.getAuthorities().size());
+		Set<String> authorizedScopes = new HashSet<>();
+		for (GrantedAuthority authority : user.getAuthorities()) {
+			authorities.add(new SimpleGrantedAuthority(authority.getAuthority()));
+			if (registeredClient.getScopes().contains(authority.getAuthority())) {
+				authorizedScopes.add(authority.getAuthority());
+			}
+		}
 		
-		authorizedScopes = user.getAuthorities().stream()
-				.map(scope -> scope.getAuthority())
-				.filter(scope -> registeredClient.getScopes().contains(scope))
-				.collect(Collectors.toSet());
-		
-		//-----------Create a new Security Context Holder Context----------
-		OAuth2ClientAuthenticationToken oAuth2ClientAuthenticationToken = (OAuth2ClientAuthenticationToken) SecurityContextHolder.getContext().getAuthentication();
-		CustomUserAuthorities customPasswordUser = new CustomUserAuthorities(username, user.getAuthorities());
-		oAuth2ClientAuthenticationToken.setDetails(customPasswordUser);
-		
-		var newcontext = SecurityContextHolder.createEmptyContext();
-		newcontext.setAuthentication(oAuth2ClientAuthenticationToken);
-		SecurityContextHolder.setContext(newcontext);		
+		// the resource owner, with plain authorities, so a JDBC authorization store can read it back;
+		// the refresh grant hands this same stored principal to the token customizer
+		Authentication resourceOwner = UsernamePasswordAuthenticationToken.authenticated(username, null, authorities);
 		
 		//-----------TOKEN BUILDERS----------
 		DefaultOAuth2TokenContext.Builder tokenContextBuilder = DefaultOAuth2TokenContext.builder()
 				.registeredClient(registeredClient)
-				.principal(clientPrincipal)
+				.principal(resourceOwner)
 				.authorizationServerContext(AuthorizationServerContextHolder.getContext())
 				.authorizedScopes(authorizedScopes)
-				.authorizationGrantType(new AuthorizationGrantType("password"))
+				.authorizationGrantType(CustomPasswordAuthenticationToken.PASSWORD)
 				.authorizationGrant(customPasswordAuthenticationToken);
 		
 		OAuth2Authorization.Builder authorizationBuilder = OAuth2Authorization.withRegisteredClient(registeredClient)
-				.attribute(Principal.class.getName(), clientPrincipal)
-				.principalName(clientPrincipal.getName())
-				.authorizationGrantType(new AuthorizationGrantType("password"))
+				.attribute(Principal.class.getName(), resourceOwner)
+				.principalName(username)
+				.authorizationGrantType(CustomPasswordAuthenticationToken.PASSWORD)
 				.authorizedScopes(authorizedScopes);
 		
 		//-----------ACCESS TOKEN----------
@@ -124,11 +154,28 @@ public class CustomPasswordAuthenticationProvider implements AuthenticationProvi
 		} else {
 			authorizationBuilder.accessToken(accessToken);
 		}
+		
+		//-----------REFRESH TOKEN----------
+		OAuth2RefreshToken refreshToken = null;
+		if (registeredClient.getAuthorizationGrantTypes().contains(AuthorizationGrantType.REFRESH_TOKEN)) {
+			tokenContext = tokenContextBuilder.tokenType(OAuth2TokenType.REFRESH_TOKEN).build();
+			OAuth2Token generatedRefreshToken = this.tokenGenerator.generate(tokenContext);
+			if (!(generatedRefreshToken instanceof OAuth2RefreshToken)) {
+				OAuth2Error error = new OAuth2Error(OAuth2ErrorCodes.SERVER_ERROR,
+						"The token generator failed to generate the refresh token.", ERROR_URI);
+				throw new OAuth2AuthenticationException(error);
+			}
+			refreshToken = (OAuth2RefreshToken) generatedRefreshToken;
+			authorizationBuilder.refreshToken(refreshToken);
+		}
 				
 		OAuth2Authorization authorization = authorizationBuilder.build();
 		this.authorizationService.save(authorization);
+		grantsIssued.increment();
+		// after the token exists, so nothing about the rehash can fail the login
+		upgradeEncodingIfNeeded(user, password);
 		
-		return new OAuth2AccessTokenAuthenticationToken(registeredClient, clientPrincipal, accessToken);
+		return new OAuth2AccessTokenAuthenticationToken(registeredClient, clientPrincipal, accessToken, refreshToken);
 	}
 
 	@Override
@@ -136,6 +183,21 @@ public class CustomPasswordAuthenticationProvider implements AuthenticationProvi
 		return CustomPasswordAuthenticationToken.class.isAssignableFrom(authentication);
 	}
 
+	// the plain password is only available here, so outdated hashes (legacy format or lower cost) are replaced now;
+	// best effort: a busy hashing pool or a failed update just leaves it for the next login
+	private void upgradeEncodingIfNeeded(UserDetails user, String password) {
+		if (!passwordEncoder.upgradeEncoding(user.getPassword())) {
+			return;
+		}
+		try {
+			userDetailsPasswordService.updatePassword(user, passwordEncoder.encode(password));
+		} catch (ServiceUnavailableException e) {
+			// keeps the current hash
+		} catch (RuntimeException e) {
+			log.warn("Could not upgrade the password encoding of {}", user.getUsername(), e);
+		}
+	}
+
 	private static OAuth2ClientAuthenticationToken getAuthenticatedClientElseThrowInvalidClient(Authentication authentication) {
 		
 		OAuth2ClientAuthenticationToken clientPrincipal = null;
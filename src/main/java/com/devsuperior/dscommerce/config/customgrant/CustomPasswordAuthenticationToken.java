@@ -13,6 +13,8 @@ import org.springframework.security.oauth2.server.authorization.authentication.O
 public class CustomPasswordAuthenticationToken extends OAuth2AuthorizationGrantAuthenticationToken {
 
 	private static final long serialVersionUID = 1L;
+
+	public static final AuthorizationGrantType PASSWORD = new AuthorizationGrantType("password");
 	
 	private final String username;
 	private final String password;
@@ -21,7 +23,7 @@ public class CustomPasswordAuthenticationToken extends OAuth2AuthorizationGrantA
 	public CustomPasswordAuthenticationToken(Authentication clientPrincipal,
 			@Nullable Set<String> scopes, @Nullable Map<String, Object> additionalParameters) {
 		
-		super(new AuthorizationGrantType("password"), clientPrincipal, additionalParameters);
+		super(PASSWORD, clientPrincipal, additionalParameters);
 		
 		this.username = (String) additionalParameters.get("username");
 		this.password = (String) additionalParameters.get("password");
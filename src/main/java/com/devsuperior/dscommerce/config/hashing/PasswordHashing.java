@@ -0,0 +1,98 @@
+package com.devsuperior.dscommerce.config.hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+public final class PasswordHashing {
+
+    public static final String BCRYPT = "bcrypt";
+    public static final String SHA256 = "sha256";
+    public static final int MIN_BCRYPT_STRENGTH = 10;
+    public static final int MAX_BCRYPT_STRENGTH = 16;
+
+    private static final String PROBE = "calibration-probe";
+
+    private PasswordHashing() {
+    }
+
+    // new hashes are "{bcrypt}" prefixed at the given cost; the unprefixed hashes already stored still match,
+    // and upgradeEncoding reports them (and any lower cost) so they get re-hashed on the next login
+    public static PasswordEncoder encoder(int bcryptStrength) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(BCRYPT, Map.of(BCRYPT, bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
+    }
+
+    // client secrets are long random values from the configuration, not user passwords: a single SHA-256
+    // compared in constant time is enough, and keeps client authentication off the bcrypt pool
+    public static PasswordEncoder clientSecretEncoder() {
+        Sha256SecretEncoder sha256 = new Sha256SecretEncoder();
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(SHA256, Map.of(SHA256, sha256));
+        encoder.setDefaultPasswordEncoderForMatches(sha256);
+        return encoder;
+    }
+
+    // every extra bcrypt round doubles the work, so one timing at the minimum cost is enough to extrapolate
+    public static int calibrateBCryptStrength(Duration targetVerification) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(MIN_BCRYPT_STRENGTH);
+        String hash = probe.encode(PROBE);
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            probe.matches(PROBE, hash);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        return strengthFor(fastest, targetVerification);
+    }
+
+    static int strengthFor(long nanosAtMinimum, Duration targetVerification) {
+        int strength = MIN_BCRYPT_STRENGTH;
+        long estimate = nanosAtMinimum;
+        while (strength < MAX_BCRYPT_STRENGTH && estimate * 2 <= targetVerification.toNanos()) {
+            strength++;
+            estimate *= 2;
+        }
+        return strength;
+    }
+
+    private static class Sha256SecretEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return HexFormat.of().formatHex(digest(rawPassword));
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            if (rawPassword == null || encodedPassword == null) {
+                return false;
+            }
+            byte[] expected;
+            try {
+                expected = HexFormat.of().parseHex(encodedPassword);
+            }
+            catch (IllegalArgumentException e) {
+                return false;
+            }
+            return MessageDigest.isEqual(digest(rawPassword), expected);
+        }
+
+        private static byte[] digest(CharSequence rawPassword) {
+            try {
+                return MessageDigest.getInstance("SHA-256").digest(rawPassword.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
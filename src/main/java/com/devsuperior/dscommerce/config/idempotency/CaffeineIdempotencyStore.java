@@ -0,0 +1,119 @@
+package com.devsuperior.dscommerce.config.idempotency;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.util.Assert;
+
+import com.devsuperior.dscommerce.services.exceptions.IdempotencyConflictException;
+import com.devsuperior.dscommerce.services.exceptions.IdempotencyKeyReusedException;
+import com.devsuperior.dscommerce.services.exceptions.ServiceUnavailableException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// single-node store: duplicates wait on the first request's future, which a release completes with null.
+// keys only leave by ttl: a size-bounded cache could evict a live key and let its retry run twice,
+// so once maxSize keys are held new ones are turned away instead
+public class CaffeineIdempotencyStore implements IdempotencyStore {
+
+    private final Cache<String, Entry> entries;
+    private final long maxSize;
+
+    public CaffeineIdempotencyStore(long maxSize, Duration ttl, MeterRegistry meterRegistry) {
+        this(maxSize, ttl, meterRegistry, Ticker.systemTicker());
+    }
+
+    CaffeineIdempotencyStore(long maxSize, Duration ttl, MeterRegistry meterRegistry, Ticker ticker) {
+        Assert.isTrue(maxSize > 0, "maxSize must be greater than zero");
+        this.maxSize = maxSize;
+        this.entries = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .scheduler(Scheduler.systemScheduler())
+                .ticker(ticker)
+                .build();
+        Gauge.builder("dscommerce.idempotency.keys", entries, Cache::estimatedSize)
+                .tag("store", "memory")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public StoredResponse claim(String key, String fingerprint, Duration wait) {
+        long deadline = System.nanoTime() + wait.toNanos();
+        while (true) {
+            ensureCapacity(key);
+            Entry entry = new Entry(fingerprint, new CompletableFuture<>());
+            Entry existing = entries.asMap().putIfAbsent(key, entry);
+            if (existing == null) {
+                return null;
+            }
+            if (!existing.fingerprint().equals(fingerprint)) {
+                throw new IdempotencyKeyReusedException("Idempotency-Key já usada com outro conteúdo");
+            }
+            StoredResponse response = await(existing, deadline);
+            if (response != null) {
+                return response;
+            }
+            // the first request failed and released the key, so this one may run it
+            entries.asMap().remove(key, existing);
+        }
+    }
+
+    @Override
+    public void complete(String key, String fingerprint, StoredResponse response) {
+        // a write, so the ttl counts from the response as in the jdbc store; a claim that expired meanwhile is stored again
+        entries.asMap().compute(key, (k, entry) -> {
+            if (entry == null) {
+                return new Entry(fingerprint, CompletableFuture.completedFuture(response));
+            }
+            if (entry.fingerprint().equals(fingerprint)) {
+                entry.response().complete(response);
+            }
+            return entry;
+        });
+    }
+
+    @Override
+    public void release(String key) {
+        Entry entry = entries.asMap().remove(key);
+        if (entry != null) {
+            entry.response().complete(null);
+        }
+    }
+
+    private void ensureCapacity(String key) {
+        if (entries.asMap().size() < maxSize || entries.asMap().containsKey(key)) {
+            return;
+        }
+        entries.cleanUp();
+        if (entries.asMap().size() >= maxSize) {
+            throw new ServiceUnavailableException("Servidor ocupado, tente novamente em instantes");
+        }
+    }
+
+    private static StoredResponse await(Entry entry, long deadline) {
+        try {
+            return entry.response().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+        catch (TimeoutException e) {
+            throw new IdempotencyConflictException("Requisição com esta Idempotency-Key ainda em processamento");
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException("Requisição com esta Idempotency-Key ainda em processamento");
+        }
+        catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private record Entry(String fingerprint, CompletableFuture<StoredResponse> response) {
+    }
+}
@@ -0,0 +1,19 @@
+package com.devsuperior.dscommerce.config.idempotency;
+
+import java.time.Duration;
+
+// one entry per idempotency key: claimed while the first request runs, then holding its response for replays
+public interface IdempotencyStore {
+
+    // null when the caller now owns the key and must complete or release it; otherwise the response to replay.
+    // waits up to the given time while another request owns the key
+    StoredResponse claim(String key, String fingerprint, Duration wait);
+
+    // stores the response even when the claim is no longer there, so a late retry still replays it
+    void complete(String key, String fingerprint, StoredResponse response);
+
+    void release(String key);
+
+    record StoredResponse(int status, String location, String body) {
+    }
+}
@@ -0,0 +1,142 @@
+package com.devsuperior.dscommerce.config.idempotency;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.devsuperior.dscommerce.services.exceptions.IdempotencyConflictException;
+import com.devsuperior.dscommerce.services.exceptions.IdempotencyKeyReusedException;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// shared between nodes: the primary key decides who runs the request, duplicates poll the row until it holds a response;
+// a claim only lasts for the lease, so a node that died mid-request does not block the key until the ttl
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    public static final String SCHEMA = "idempotency-schema.sql";
+
+    private static final String INSERT = """
+            INSERT INTO idempotency_keys (idempotency_key, fingerprint, expires_at) VALUES (?, ?, ?)
+            """;
+
+    private static final String SELECT = """
+            SELECT fingerprint, response_status, response_location, response_body, expires_at
+            FROM idempotency_keys WHERE idempotency_key = ?
+            """;
+
+    private static final String INSERT_COMPLETED = """
+            INSERT INTO idempotency_keys (idempotency_key, fingerprint, response_status, response_location, response_body, expires_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String COMPLETE = """
+            UPDATE idempotency_keys SET response_status = ?, response_location = ?, response_body = ?, expires_at = ?
+            WHERE idempotency_key = ?
+            """;
+
+    private static final String DELETE_CLAIM = "DELETE FROM idempotency_keys WHERE idempotency_key = ? AND response_status IS NULL";
+    private static final String DELETE_EXPIRED_KEY = "DELETE FROM idempotency_keys WHERE idempotency_key = ? AND expires_at < ?";
+    private static final String DELETE_EXPIRED = "DELETE FROM idempotency_keys WHERE expires_at < ?";
+    private static final String COUNT = "SELECT COUNT(*) FROM idempotency_keys";
+
+    private final JdbcOperations jdbcOperations;
+    private final Duration ttl;
+    private final Duration lease;
+    private final Duration pollInterval;
+
+    public JdbcIdempotencyStore(JdbcOperations jdbcOperations, Duration ttl, Duration lease, Duration pollInterval, MeterRegistry meterRegistry) {
+        this.jdbcOperations = jdbcOperations;
+        this.ttl = ttl;
+        this.lease = lease;
+        this.pollInterval = pollInterval;
+        Gauge.builder("dscommerce.idempotency.keys", this, JdbcIdempotencyStore::count)
+                .tag("store", "jdbc")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public StoredResponse claim(String key, String fingerprint, Duration wait) {
+        long deadline = System.nanoTime() + wait.toNanos();
+        while (true) {
+            Instant now = Instant.now();
+            try {
+                jdbcOperations.update(INSERT, key, fingerprint, Timestamp.from(now.plus(lease)));
+                return null;
+            }
+            catch (DuplicateKeyException e) {
+                // someone else holds the key, look at what they left
+            }
+
+            List<Row> rows = jdbcOperations.query(SELECT, (rs, i) -> new Row(rs.getString(1), (Integer) rs.getObject(2),
+                                                    rs.getString(3), rs.getString(4), rs.getTimestamp(5).toInstant()), key);
+            if (rows.isEmpty()) {
+                continue;
+            }
+            Row row = rows.get(0);
+            if (row.expiresAt().isBefore(now)) {
+                jdbcOperations.update(DELETE_EXPIRED_KEY, key, Timestamp.from(now));
+                continue;
+            }
+            if (!row.fingerprint().equals(fingerprint)) {
+                throw new IdempotencyKeyReusedException("Idempotency-Key já usada com outro conteúdo");
+            }
+            if (row.status() != null) {
+                return new StoredResponse(row.status(), row.location(), row.body());
+            }
+            if (System.nanoTime() >= deadline) {
+                throw new IdempotencyConflictException("Requisição com esta Idempotency-Key ainda em processamento");
+            }
+            sleep();
+        }
+    }
+
+    @Override
+    public void complete(String key, String fingerprint, StoredResponse response) {
+        Timestamp expiresAt = Timestamp.from(Instant.now().plus(ttl));
+        if (jdbcOperations.update(COMPLETE, response.status(), response.location(), response.body(), expiresAt, key) > 0) {
+            return;
+        }
+        try {
+            // the lease ran out and the claim was swept; keep the response for retries
+            jdbcOperations.update(INSERT_COMPLETED, key, fingerprint, response.status(), response.location(), response.body(), expiresAt);
+        }
+        catch (DuplicateKeyException e) {
+            // another request claimed the key after the lease, it stores its own response
+        }
+    }
+
+    @Override
+    public void release(String key) {
+        jdbcOperations.update(DELETE_CLAIM, key);
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.store.sweep-interval-seconds}", timeUnit = TimeUnit.SECONDS)
+    public int sweep() {
+        return jdbcOperations.update(DELETE_EXPIRED, Timestamp.from(Instant.now()));
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(pollInterval);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException("Requisição com esta Idempotency-Key ainda em processamento");
+        }
+    }
+
+    private long count() {
+        Long count = jdbcOperations.queryForObject(COUNT, Long.class);
+        return (count == null) ? 0L : count;
+    }
+
+    private record Row(String fingerprint, Integer status, String location, String body, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,223 @@
+package com.devsuperior.dscommerce.config.jwk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// signing keys kept in a JWK set file that every node reads: the first node to find the newest key older than
+// the rotation interval appends a new one under a file lock. A new key is published for verification one refresh
+// interval before it signs, so every node knows it first, and a retired key stays published until the access
+// tokens it signed have expired. Without a path the set lives in memory and is lost on restart.
+public class RotatingJwkSet {
+
+    private record Snapshot(String source, List<JWK> keys, JWKSet verification, JWKSet signing, JWK active) {}
+
+    private static final Snapshot EMPTY = new Snapshot(null, List.of(), new JWKSet(), new JWKSet(), null);
+
+    private final Path path;
+    private final Path lockPath;
+    private final Duration rotationInterval;
+    private final Duration activationDelay;
+    private final Duration tokenTimeToLive;
+    private final Supplier<JWK> keyGenerator;
+    private final Clock clock;
+
+    private volatile Snapshot snapshot = EMPTY;
+    private CompletableFuture<JWK> nextKey;
+
+    public RotatingJwkSet(Path path, Duration rotationInterval, Duration activationDelay, Duration tokenTimeToLive,
+                          Supplier<JWK> keyGenerator, MeterRegistry meterRegistry) {
+        this(path, rotationInterval, activationDelay, tokenTimeToLive, keyGenerator, Clock.systemUTC());
+        Gauge.builder("dscommerce.jwk.keys", this, x -> x.snapshot.keys().size()).register(meterRegistry);
+    }
+
+    RotatingJwkSet(Path path, Duration rotationInterval, Duration activationDelay, Duration tokenTimeToLive,
+                   Supplier<JWK> keyGenerator, Clock clock) {
+        this.path = path;
+        this.lockPath = (path == null) ? null : path.resolveSibling(path.getFileName() + ".lock");
+        this.rotationInterval = rotationInterval;
+        this.activationDelay = activationDelay;
+        this.tokenTimeToLive = tokenTimeToLive;
+        this.keyGenerator = keyGenerator;
+        this.clock = clock;
+        // key generation runs in the background; startup only reads the file, if there is one
+        this.nextKey = CompletableFuture.supplyAsync(keyGenerator);
+        if (path != null) {
+            reload();
+        }
+    }
+
+    public JWKSource<SecurityContext> verificationKeys() {
+        return (jwkSelector, securityContext) -> jwkSelector.select(current().verification());
+    }
+
+    // every private key: the token customizer puts the active key's kid in the header, so the encoder
+    // still finds exactly one key when a rotation lands between the customizer and the encoder
+    public JWKSource<SecurityContext> signingKeys() {
+        return (jwkSelector, securityContext) -> jwkSelector.select(current().signing());
+    }
+
+    public JWK activeKey() {
+        return current().active();
+    }
+
+    @Scheduled(fixedDelayString = "${security.jwk.refresh-interval-seconds}",
+               initialDelayString = "${security.jwk.refresh-interval-seconds}", timeUnit = TimeUnit.SECONDS)
+    public synchronized void refresh() {
+        if (path != null) {
+            reload();
+        }
+        if (!rotationDue()) {
+            install(snapshot.source(), snapshot.keys());
+            return;
+        }
+        if (path == null) {
+            install(null, withNewKey(snapshot.keys()));
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = channel.lock()) {
+            // another node may have rotated while this one waited for the lock
+            reload();
+            if (rotationDue()) {
+                write(withNewKey(snapshot.keys()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    List<JWK> keys() {
+        return current().keys();
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current.keys().isEmpty()) {
+            refresh();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    private boolean rotationDue() {
+        List<JWK> keys = snapshot.keys();
+        if (keys.isEmpty()) {
+            return true;
+        }
+        if (rotationInterval.isZero()) {
+            return false;
+        }
+        Instant newest = issuedAt(keys.get(keys.size() - 1));
+        return !clock.instant().isBefore(newest.plus(rotationInterval));
+    }
+
+    private synchronized List<JWK> withNewKey(List<JWK> keys) {
+        JWK key = nextKey.join();
+        nextKey = CompletableFuture.supplyAsync(keyGenerator);
+        Map<String, Object> json = key.toJSONObject();
+        json.put("iat", clock.instant().getEpochSecond());
+        List<JWK> updated = new ArrayList<>(keys);
+        try {
+            updated.add(JWK.parse(json));
+        } catch (ParseException e) {
+            throw new IllegalStateException(e);
+        }
+        return prune(updated);
+    }
+
+    private void reload() {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try {
+            String source = Files.readString(path);
+            if (source.equals(snapshot.source())) {
+                return;
+            }
+            install(source, JWKSet.parse(source).getKeys());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ParseException e) {
+            throw new IllegalStateException("Conjunto de chaves inválido: " + path, e);
+        }
+    }
+
+    private void write(List<JWK> keys) throws IOException {
+        String source = new JWKSet(keys).toString(false);
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        // created owner-only on POSIX file systems; the move publishes the whole file at once
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        Files.writeString(temp, source);
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        install(source, keys);
+    }
+
+    private void install(String source, List<JWK> keys) {
+        List<JWK> sorted = prune(keys);
+        if (sorted.isEmpty()) {
+            snapshot = new Snapshot(source, sorted, new JWKSet(), new JWKSet(), null);
+            return;
+        }
+        Instant now = clock.instant();
+        // the newest key every node has had time to load; on first boot the only key there is
+        JWK active = sorted.get(0);
+        for (JWK key : sorted) {
+            if (!issuedAt(key).plus(activationDelay).isAfter(now)) {
+                active = key;
+            }
+        }
+        JWKSet keySet = new JWKSet(sorted);
+        snapshot = new Snapshot(source, sorted, keySet.toPublicJWKSet(), keySet, active);
+    }
+
+    // a key is retired once its successor activates, and dropped when its last token has expired
+    private List<JWK> prune(List<JWK> keys) {
+        List<JWK> sorted = new ArrayList<>(keys);
+        sorted.sort(Comparator.comparing(RotatingJwkSet::issuedAt));
+        Instant now = clock.instant();
+        List<JWK> kept = new ArrayList<>(sorted.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            if (i == sorted.size() - 1) {
+                kept.add(sorted.get(i));
+                continue;
+            }
+            Instant retiredAt = issuedAt(sorted.get(i + 1)).plus(activationDelay);
+            if (now.isBefore(retiredAt.plus(tokenTimeToLive))) {
+                kept.add(sorted.get(i));
+            }
+        }
+        return List.copyOf(kept);
+    }
+
+    private static Instant issuedAt(JWK key) {
+        return (key.getIssueTime() == null) ? Instant.EPOCH : key.getIssueTime().toInstant();
+    }
+}
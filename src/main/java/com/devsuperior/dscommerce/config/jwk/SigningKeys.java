@@ -0,0 +1,68 @@
+package com.devsuperior.dscommerce.config.jwk;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+
+// RS256 keeps the original RSA-2048 keys; ES256 (P-256) signs several times faster and gives smaller tokens,
+// but on the JDK it verifies slower than RSA, which the verified-JWT cache mostly hides
+public final class SigningKeys {
+
+    private SigningKeys() {
+    }
+
+    public static Supplier<JWK> generator(SignatureAlgorithm algorithm) {
+        if (algorithm == SignatureAlgorithm.RS256) {
+            return SigningKeys::rsa;
+        }
+        if (algorithm == SignatureAlgorithm.ES256) {
+            return SigningKeys::ec;
+        }
+        throw new IllegalArgumentException("Algoritmo de assinatura não suportado: " + algorithm);
+    }
+
+    // the JWS algorithm a key signs with; keys of both types can share one set while migrating
+    public static SignatureAlgorithm algorithmOf(JWK key) {
+        if (key instanceof RSAKey) {
+            return SignatureAlgorithm.RS256;
+        }
+        if (key instanceof ECKey ecKey && Curve.P_256.equals(ecKey.getCurve())) {
+            return SignatureAlgorithm.ES256;
+        }
+        throw new IllegalArgumentException("Chave de assinatura não suportada: " + key.getKeyID());
+    }
+
+    public static JWK rsa() {
+        KeyPair keyPair;
+        try {
+            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+            keyPairGenerator.initialize(2048);
+            keyPair = keyPairGenerator.generateKeyPair();
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        RSAPrivateKey privateKey = (RSAPrivateKey) keyPair.getPrivate();
+        return new RSAKey.Builder(publicKey).privateKey(privateKey).keyID(UUID.randomUUID().toString()).build();
+    }
+
+    public static JWK ec() {
+        try {
+            return new ECKeyGenerator(Curve.P_256).keyID(UUID.randomUUID().toString()).generate();
+        } catch (JOSEException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.devsuperior.dscommerce.config.jwt;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// tokens already verified, with their mapped authorities, until their exp: a cached token skips the signature
+// check and the claim parsing. Keyed by the token itself, which the cached Jwt holds anyway.
+public class VerifiedJwtCache {
+
+    public static final String NAME = "verifiedJwts";
+
+    private record Verified(Jwt jwt, Collection<GrantedAuthority> authorities) {}
+
+    private final Cache<String, Verified> cache;
+    private final Converter<Jwt, Collection<GrantedAuthority>> authoritiesConverter;
+
+    public VerifiedJwtCache(long maxSize, Converter<Jwt, Collection<GrantedAuthority>> authoritiesConverter, MeterRegistry meterRegistry) {
+        this.authoritiesConverter = authoritiesConverter;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilExpiresAt())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NAME);
+    }
+
+    public JwtDecoder decoder(JwtDecoder delegate) {
+        return token -> {
+            Verified verified = cache.getIfPresent(token);
+            if (verified != null) {
+                return verified.jwt();
+            }
+            Jwt jwt = delegate.decode(token);
+            if (jwt.getExpiresAt() != null && jwt.getExpiresAt().isAfter(Instant.now())) {
+                cache.put(token, new Verified(jwt, List.copyOf(authoritiesConverter.convert(jwt))));
+            }
+            return jwt;
+        };
+    }
+
+    public Converter<Jwt, Collection<GrantedAuthority>> authoritiesConverter() {
+        return jwt -> {
+            Verified verified = cache.getIfPresent(jwt.getTokenValue());
+            return (verified != null) ? verified.authorities() : authoritiesConverter.convert(jwt);
+        };
+    }
+
+    long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    private static class UntilExpiresAt implements Expiry<String, Verified> {
+
+        @Override
+        public long expireAfterCreate(String token, Verified verified, long currentTime) {
+            return Math.max(0L, Duration.between(Instant.now(), verified.jwt().getExpiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, Verified verified, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, verified, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, Verified verified, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -1,20 +1,37 @@
 package com.devsuperior.dscommerce.controllers;
 
 import java.net.URI;
+import java.time.Instant;
+import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.devsuperior.dscommerce.dtos.OrderDTO;
+import com.devsuperior.dscommerce.dtos.OrderStatusDTO;
+import com.devsuperior.dscommerce.dtos.OrderTransitionDTO;
+import com.devsuperior.dscommerce.dtos.OrderTransitionJobDTO;
+import com.devsuperior.dscommerce.entities.OrderStatus;
+import com.devsuperior.dscommerce.services.IdempotencyService;
 import com.devsuperior.dscommerce.services.OrderService;
+import com.devsuperior.dscommerce.services.OrderTransitionJobs;
 
 import jakarta.validation.Valid;
 
@@ -25,6 +42,12 @@ public class OrderController {
     @Autowired
     private OrderService service;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private OrderTransitionJobs transitionJobs;
+
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('ROLE_ADMIN','ROLE_CLIENT')")
     public ResponseEntity<OrderDTO> findById(@PathVariable Long id){
@@ -32,12 +55,71 @@ public class OrderController {
         return ResponseEntity.ok(obj);
     }
 
+    @GetMapping("/my")
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN','ROLE_CLIENT')")
+    public ResponseEntity<Page<OrderDTO>> findMine(@PageableDefault(sort = "moment",direction = Sort.Direction.DESC) Pageable pageable){
+        Page<OrderDTO> list = service.findMine(pageable);
+        return ResponseEntity.ok(list);
+    }
+
+    //Ex.:http://localhost:8080/orders?status=PAID&minDate=2022-07-01T00:00:00Z&maxDate=2022-07-31T23:59:59Z
+    @GetMapping
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<Page<OrderDTO>> findAll(@RequestParam(name = "status",required = false) OrderStatus status,
+                                                @RequestParam(name = "minDate",required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Instant minDate,
+                                                @RequestParam(name = "maxDate",required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Instant maxDate,
+                                                @PageableDefault(sort = "moment",direction = Sort.Direction.DESC) Pageable pageable){
+        Page<OrderDTO> list = service.findAll(status, minDate, maxDate, pageable);
+        return ResponseEntity.ok(list);
+    }
+
     @PostMapping
     @PreAuthorize("hasRole('ROLE_CLIENT')")
-    public ResponseEntity<OrderDTO> insert(@Valid @RequestBody OrderDTO obj){
-        obj = service.insert(obj);
+    public ResponseEntity<OrderDTO> insert(@RequestHeader(name = IdempotencyService.HEADER,required = false) String idempotencyKey,
+                                        @Valid @RequestBody OrderDTO obj){
+        if (idempotencyKey == null) {
+            return create(obj);
+        }
+        // only what insert reads from the body: prices and names sent by the client are ignored
+        List<String> request = obj.getItems().stream().map(x -> x.getProductId() + "x" + x.getQuantity()).toList();
+        return idempotencyService.execute("POST /orders", idempotencyKey, request, OrderDTO.class, () -> create(obj));
+    }
+
+    @PutMapping("/{id}/cancel")
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN','ROLE_CLIENT')")
+    public ResponseEntity<OrderDTO> cancel(@PathVariable Long id){
+        OrderDTO obj = service.cancel(id);
+        return ResponseEntity.ok(obj);
+    }
+
+    @PutMapping("/{id}/status")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<OrderDTO> updateStatus(@PathVariable Long id,@Valid @RequestBody OrderStatusDTO obj){
+        OrderDTO result = service.updateStatus(id, obj.getStatus());
+        return ResponseEntity.ok(result);
+    }
+
+    // accepted right away; the Location answers with the job's progress until it is DONE or FAILED
+    @PostMapping("/status-transitions")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<OrderTransitionJobDTO> transition(@Valid @RequestBody OrderTransitionDTO obj){
+        OrderTransitionJobDTO result = transitionJobs.submit(obj.getStatus(), obj.getOrderIds());
+        URI uri = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}")
+        .buildAndExpand(result.getId()).toUri();
+        return ResponseEntity.accepted().location(uri).body(result);
+    }
+
+    @GetMapping("/status-transitions/{id}")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<OrderTransitionJobDTO> findTransition(@PathVariable String id){
+        OrderTransitionJobDTO result = transitionJobs.find(id);
+        return ResponseEntity.ok(result);
+    }
+
+    private ResponseEntity<OrderDTO> create(OrderDTO obj){
+        OrderDTO result = service.insert(obj);
         URI uri = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}")
-        .buildAndExpand(obj.getId()).toUri();
-        return ResponseEntity.created(uri).body(obj);
+        .buildAndExpand(result.getId()).toUri();
+        return ResponseEntity.created(uri).body(result);
     }
 }
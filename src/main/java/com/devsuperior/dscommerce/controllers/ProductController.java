@@ -18,8 +18,10 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.devsuperior.dscommerce.dtos.CursorSliceDTO;
 import com.devsuperior.dscommerce.dtos.ProductDTO;
 import com.devsuperior.dscommerce.dtos.ProductMinDTO;
+import com.devsuperior.dscommerce.dtos.StockDTO;
 import com.devsuperior.dscommerce.services.ProductService;
 
 import jakarta.validation.Valid;
@@ -44,6 +46,16 @@ public class ProductController {
         return ResponseEntity.ok(list);
     }
 
+    //Ex.:http://localhost:8080/products?after=&size=12 (use o nextCursor da resposta como after da próxima página)
+    //ordem fixa por name e id: qualquer outro sort responde 400
+    @GetMapping(params = "after")
+    public ResponseEntity<CursorSliceDTO<ProductMinDTO>> findAllByCursor(@RequestParam(name = "name",defaultValue = "") String name,
+                                                                    @RequestParam(name = "after",defaultValue = "") String after,
+                                                                    Pageable pageable){
+        CursorSliceDTO<ProductMinDTO> list = service.findAllByCursor(name, after, pageable);
+        return ResponseEntity.ok(list);
+    }
+
     @GetMapping("/categories")
     public ResponseEntity<Page<ProductDTO>> searchProductsWithCategories(@RequestParam(value = "categoryIds",defaultValue = "0") String categoryIds,
                                                                     @RequestParam(value = "name",defaultValue = "") String name,
@@ -52,6 +64,16 @@ public class ProductController {
         return ResponseEntity.ok(list);
     }
 
+    //Ex.:http://localhost:8080/products/categories?after=&size=12&categoryIds=1,3 (ordem fixa por name e id: qualquer outro sort responde 400)
+    @GetMapping(value = "/categories",params = "after")
+    public ResponseEntity<CursorSliceDTO<ProductDTO>> searchProductsWithCategoriesByCursor(@RequestParam(value = "categoryIds",defaultValue = "0") String categoryIds,
+                                                                    @RequestParam(value = "name",defaultValue = "") String name,
+                                                                    @RequestParam(value = "after",defaultValue = "") String after,
+                                                                    Pageable pageable){
+        CursorSliceDTO<ProductDTO> list = service.searchProductsWithCategoriesByCursor(categoryIds, name, after, pageable);
+        return ResponseEntity.ok(list);
+    }
+
     @PostMapping
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     public ResponseEntity<ProductDTO> insert(@Valid @RequestBody ProductDTO dto){
@@ -68,6 +90,20 @@ public class ProductController {
         return ResponseEntity.ok(dto);
     }
 
+    @GetMapping("/{id}/stock")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<StockDTO> findStock(@PathVariable Long id){
+        StockDTO dto = service.findStock(id);
+        return ResponseEntity.ok(dto);
+    }
+
+    @PutMapping("/{id}/stock")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<StockDTO> updateStock(@PathVariable Long id,@RequestBody @Valid StockDTO dto){
+        dto = service.updateStock(id, dto);
+        return ResponseEntity.ok(dto);
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     public ResponseEntity<Void> delete(@PathVariable Long id){
@@ -0,0 +1,32 @@
+package com.devsuperior.dscommerce.dtos;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.util.Converter;
+
+// Spring Data converts plain PageImpl instances to Page before writing them, which would drop totalExact
+@JsonSerialize(converter = Converter.None.class)
+public class CountedPageDTO<T> extends PageImpl<T> {
+
+    private final boolean totalExact;
+
+    public CountedPageDTO(List<T> content, Pageable pageable, long total, boolean totalExact) {
+        super(content, pageable, total);
+        this.totalExact = totalExact;
+    }
+
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+
+    @Override
+    public <U> Page<U> map(Function<? super T, ? extends U> converter) {
+        return new CountedPageDTO<>(getConvertedContent(converter), getPageable(), getTotalElements(), totalExact);
+    }
+}
@@ -0,0 +1,41 @@
+package com.devsuperior.dscommerce.dtos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CursorSliceDTO<T> {
+
+    private List<T> content = new ArrayList<>();
+    private Integer size;
+    private Integer numberOfElements;
+    private boolean hasNext;
+    private String nextCursor;
+
+    public CursorSliceDTO(List<T> content, Integer size, boolean hasNext, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.numberOfElements = content.size();
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public Integer getNumberOfElements() {
+        return numberOfElements;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -8,6 +8,7 @@ import com.devsuperior.dscommerce.entities.Order;
 import com.devsuperior.dscommerce.entities.OrderItem;
 import com.devsuperior.dscommerce.entities.OrderStatus;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
 
 public class OrderDTO {
@@ -22,6 +23,7 @@ public class OrderDTO {
 
     private PaymentDTO payment;
 
+    @Valid
     @NotEmpty(message = "O pedido deve ter pelo menos 1 item")
     private List<OrderItemDTO> items = new ArrayList<>();
 
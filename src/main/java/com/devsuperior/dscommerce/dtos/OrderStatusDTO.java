@@ -0,0 +1,26 @@
+package com.devsuperior.dscommerce.dtos;
+
+import com.devsuperior.dscommerce.entities.OrderStatus;
+
+import jakarta.validation.constraints.NotNull;
+
+public class OrderStatusDTO {
+
+    @NotNull(message = "Campo Obrigatório")
+    private OrderStatus status;
+
+    public OrderStatusDTO() {
+    }
+
+    public OrderStatusDTO(OrderStatus status) {
+        this.status = status;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(OrderStatus status) {
+        this.status = status;
+    }
+}
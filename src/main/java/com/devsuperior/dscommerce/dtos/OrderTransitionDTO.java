@@ -0,0 +1,46 @@
+package com.devsuperior.dscommerce.dtos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.devsuperior.dscommerce.entities.OrderStatus;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+public class OrderTransitionDTO {
+
+    public static final int MAX_ORDERS = 100_000;
+
+    @NotNull(message = "Campo Obrigatório")
+    private OrderStatus status;
+
+    @NotEmpty(message = "Deve haver pelo menos um pedido")
+    @Size(max = MAX_ORDERS, message = "No máximo " + MAX_ORDERS + " pedidos por requisição")
+    private List<@NotNull(message = "Campo Obrigatório") Long> orderIds = new ArrayList<>();
+
+    public OrderTransitionDTO() {
+    }
+
+    public OrderTransitionDTO(OrderStatus status, List<Long> orderIds) {
+        this.status = status;
+        this.orderIds = orderIds;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(OrderStatus status) {
+        this.status = status;
+    }
+
+    public List<Long> getOrderIds() {
+        return orderIds;
+    }
+
+    public void setOrderIds(List<Long> orderIds) {
+        this.orderIds = orderIds;
+    }
+}
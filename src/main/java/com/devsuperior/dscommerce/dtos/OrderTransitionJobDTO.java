@@ -0,0 +1,83 @@
+package com.devsuperior.dscommerce.dtos;
+
+import java.time.Instant;
+import java.util.List;
+
+import com.devsuperior.dscommerce.entities.OrderStatus;
+
+public class OrderTransitionJobDTO {
+
+    public enum State { QUEUED, RUNNING, DONE, FAILED }
+
+    private String id;
+    private OrderStatus status;
+    private State state;
+    private Integer total;
+    private Integer processed;
+    private Integer updated;
+    private Integer rejected;
+    // the first rejected ids only; rejected has the full count
+    private List<Long> rejectedIds;
+    private String error;
+    private Instant createdAt;
+    private Instant finishedAt;
+
+    public OrderTransitionJobDTO(String id, OrderStatus status, State state, Integer total, Integer processed, Integer updated,
+                                 Integer rejected, List<Long> rejectedIds, String error, Instant createdAt, Instant finishedAt) {
+        this.id = id;
+        this.status = status;
+        this.state = state;
+        this.total = total;
+        this.processed = processed;
+        this.updated = updated;
+        this.rejected = rejected;
+        this.rejectedIds = rejectedIds;
+        this.error = error;
+        this.createdAt = createdAt;
+        this.finishedAt = finishedAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public Integer getTotal() {
+        return total;
+    }
+
+    public Integer getProcessed() {
+        return processed;
+    }
+
+    public Integer getUpdated() {
+        return updated;
+    }
+
+    public Integer getRejected() {
+        return rejected;
+    }
+
+    public List<Long> getRejectedIds() {
+        return rejectedIds;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+}
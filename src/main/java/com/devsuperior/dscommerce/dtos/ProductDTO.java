@@ -7,6 +7,7 @@ import org.springframework.hateoas.RepresentationModel;
 
 import com.devsuperior.dscommerce.entities.Category;
 import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.projections.ProductCategoryProjection;
 
 import jakarta.persistence.Column;
 import jakarta.validation.constraints.NotBlank;
@@ -59,6 +60,24 @@ public class ProductDTO extends RepresentationModel<ProductDTO>{
         }
     }
 
+    // same data, none of the links
+    public ProductDTO(ProductDTO dto){
+        id = dto.getId();
+        name = dto.getName();
+        description = dto.getDescription();
+        price = dto.getPrice();
+        imgUrl = dto.getImgUrl();
+        categories.addAll(dto.getCategories());
+    }
+
+    public ProductDTO(ProductCategoryProjection projection){
+        id = projection.getId();
+        name = projection.getName();
+        description = projection.getDescription();
+        price = projection.getPrice();
+        imgUrl = projection.getImgUrl();
+    }
+
     public Long getId() {
         return id;
     }
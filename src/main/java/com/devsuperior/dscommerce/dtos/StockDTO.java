@@ -0,0 +1,37 @@
+package com.devsuperior.dscommerce.dtos;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+
+public class StockDTO {
+
+    private Long productId;
+
+    @NotNull(message = "Campo requerido")
+    @PositiveOrZero(message = "O estoque não pode ser negativo")
+    private Integer stock;
+
+    public StockDTO() {
+    }
+
+    public StockDTO(Long productId,Integer stock) {
+        this.productId = productId;
+        this.stock = stock;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public void setStock(Integer stock) {
+        this.stock = stock;
+    }
+}
@@ -0,0 +1,9 @@
+package com.devsuperior.dscommerce.entities;
+
+public enum EmailOutboxStatus {
+
+    PENDING,
+    SENT,
+    DEAD;
+
+}
@@ -1,5 +1,8 @@
 package com.devsuperior.dscommerce.entities;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public enum OrderStatus {
 
     WAITING_PAYMENT,
@@ -8,4 +11,28 @@ public enum OrderStatus {
     DELIVERED,
     CANCELED;
 
+    // DELIVERED and CANCELED are final
+    public Set<OrderStatus> next(){
+        return switch (this) {
+            case WAITING_PAYMENT -> EnumSet.of(PAID, CANCELED);
+            case PAID -> EnumSet.of(SHIPPED, CANCELED);
+            case SHIPPED -> EnumSet.of(DELIVERED);
+            case DELIVERED, CANCELED -> EnumSet.noneOf(OrderStatus.class);
+        };
+    }
+
+    // the statuses a conditional update may move to this one
+    public Set<OrderStatus> previous(){
+        Set<OrderStatus> previous = EnumSet.noneOf(OrderStatus.class);
+        for (OrderStatus x : values()) {
+            if (x.next().contains(this)) {
+                previous.add(x);
+            }
+        }
+        return previous;
+    }
+
+    public boolean canTransitionTo(OrderStatus target){
+        return next().contains(target);
+    }
 }
@@ -36,6 +36,11 @@ public class Product implements IdProjection<Long>{
 
     private String imgUrl;
 
+    // not updatable: saving a product must not write back a stock read before concurrent reservations,
+    // it only changes through the statements in ProductRepositoryCustomImpl
+    @Column(nullable = false, updatable = false)
+    private Integer stock = 0;
+
     @ManyToMany
     @JoinTable(name = "product_category",
     joinColumns = @JoinColumn(name = "product_id"),inverseJoinColumns = @JoinColumn(name = "category_id"))
@@ -109,6 +114,14 @@ public class Product implements IdProjection<Long>{
         this.imgUrl = imgUrl;
     }
 
+    public Integer getStock() {
+        return stock;
+    }
+
+    public void setStock(Integer stock) {
+        this.stock = stock;
+    }
+
     public Set<Category> getCategories() {
         return categories;
     }
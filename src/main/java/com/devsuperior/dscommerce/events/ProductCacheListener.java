@@ -0,0 +1,34 @@
+package com.devsuperior.dscommerce.events;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.devsuperior.dscommerce.config.CacheConfig;
+import com.devsuperior.dscommerce.util.CacheGenerations;
+
+@Component
+public class ProductCacheListener {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private CacheGenerations cacheGenerations;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event){
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCTS);
+        if (cache != null) {
+            // evictIfPresent is immediate, a plain evict would be deferred to a commit that already happened
+            cacheGenerations.evict(cache, event.getProductId());
+        }
+        Cache counts = cacheManager.getCache(CacheConfig.PRODUCT_COUNTS);
+        if (counts != null) {
+            // any change may move a product in or out of a cached filter, and invalidate is immediate as well
+            counts.invalidate();
+        }
+    }
+}
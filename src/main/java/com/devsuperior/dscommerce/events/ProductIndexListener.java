@@ -0,0 +1,32 @@
+package com.devsuperior.dscommerce.events;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.search.ProductSearchIndex;
+
+@Component
+public class ProductIndexListener {
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ProductRepository repository;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event){
+        List<Product> result = repository.searchProductsForIndex(List.of(event.getProductId()));
+        if (result.isEmpty()) {
+            searchIndex.delete(event.getProductId());
+        }
+        else {
+            searchIndex.index(result.get(0));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.devsuperior.dscommerce.events;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.devsuperior.dscommerce.config.authorization.PrincipalAuthorizationService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// refresh grants reuse the authorities stored with the authorization, so a new password, new roles or a deleted
+// account only take effect once the user's authorizations are gone; issued access tokens still run until exp
+@Component
+public class UserAuthorizationListener {
+
+    @Autowired
+    private PrincipalAuthorizationService authorizationService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event){
+        if (event.isRevokeAuthorizations()) {
+            int removed = authorizationService.removeByPrincipalName(event.getUsername());
+            meterRegistry.counter("dscommerce.oauth2.authorizations.revoked").increment(removed);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.devsuperior.dscommerce.events;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.devsuperior.dscommerce.config.CacheConfig;
+import com.devsuperior.dscommerce.util.CacheGenerations;
+
+@Component
+public class UserCacheListener {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private CacheGenerations cacheGenerations;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event){
+        for (String name : List.of(CacheConfig.AUTHENTICATED_USERS, CacheConfig.USER_DETAILS)) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cacheGenerations.evict(cache, event.getUsername());
+            }
+        }
+    }
+}
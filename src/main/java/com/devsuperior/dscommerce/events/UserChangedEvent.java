@@ -0,0 +1,25 @@
+package com.devsuperior.dscommerce.events;
+
+public class UserChangedEvent {
+
+    private final String username;
+    private final boolean revokeAuthorizations;
+
+    public UserChangedEvent(String username) {
+        this(username, true);
+    }
+
+    // false when nothing the issued tokens rely on changed, like a re-hash of the same password
+    public UserChangedEvent(String username, boolean revokeAuthorizations) {
+        this.username = username;
+        this.revokeAuthorizations = revokeAuthorizations;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public boolean isRevokeAuthorizations() {
+        return revokeAuthorizations;
+    }
+}
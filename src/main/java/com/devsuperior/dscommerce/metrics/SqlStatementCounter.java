@@ -0,0 +1,28 @@
+package com.devsuperior.dscommerce.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// counts the statements Hibernate prepares on the current thread while a request is being measured
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    public static void start() {
+        COUNT.set(new int[1]);
+    }
+
+    public static int stop() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return (count == null) ? 0 : count[0];
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,12 @@
+package com.devsuperior.dscommerce.projections;
+
+public interface ProductCategoryProjection extends IdProjection<Long>{
+
+    String getName();
+    String getDescription();
+    Double getPrice();
+    String getImgUrl();
+    Long getCategoryId();
+    String getCategoryName();
+
+}
@@ -1,8 +1,7 @@
 package com.devsuperior.dscommerce.projections;
 
-public interface ProductMinProjection {
+public interface ProductMinProjection extends IdProjection<Long>{
 
-    Long getId();
     String getName();
     Double getPrice();
     String getImgUrl();
@@ -1,6 +1,7 @@
 package com.devsuperior.dscommerce.repositories;
 
-import org.springframework.data.domain.Page;
+import java.util.List;
+
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -19,5 +20,12 @@ public interface CategoryRepository extends JpaRepository<Category,Long>{
             INNER JOIN categories AS c ON pc.category_id = c.id
             WHERE c.id = :id
             """)
-    Page<ProductMinProjection> findProductsByCategory(Long id,Pageable pageable);
+    List<ProductMinProjection> findProductsByCategory(Long id,Pageable pageable);
+
+    @Query(nativeQuery = true,value = """
+            SELECT COUNT(*) FROM (
+                SELECT 1 FROM product_category AS pc WHERE pc.category_id = :id LIMIT :limit
+            ) AS capped
+            """)
+    long countProductsByCategory(Long id,long limit);
 }
@@ -0,0 +1,33 @@
+package com.devsuperior.dscommerce.repositories;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import com.devsuperior.dscommerce.entities.EmailOutbox;
+import com.devsuperior.dscommerce.entities.EmailOutboxStatus;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox,Long>{
+
+    // -2 is Hibernate's SKIP LOCKED: concurrent dispatchers on other nodes claim different rows
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT obj FROM EmailOutbox obj WHERE obj.status = :status AND obj.nextAttemptAt <= :now ORDER BY obj.nextAttemptAt")
+    List<EmailOutbox> searchDue(EmailOutboxStatus status, Instant now, Pageable pageable);
+
+    long countByStatus(EmailOutboxStatus status);
+
+    @Modifying
+    @Query("DELETE FROM EmailOutbox obj WHERE (obj.status = :sent AND obj.sentAt < :sentBefore) "
+        + "OR (obj.status = :dead AND obj.createdAt < :deadBefore)")
+    int deleteExpired(EmailOutboxStatus sent,Instant sentBefore,EmailOutboxStatus dead,Instant deadBefore);
+}
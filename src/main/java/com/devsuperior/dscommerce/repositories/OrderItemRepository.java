@@ -1,10 +1,18 @@
 package com.devsuperior.dscommerce.repositories;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import com.devsuperior.dscommerce.entities.OrderItem;
 import com.devsuperior.dscommerce.entities.pk.OrderItemPK;
+import com.devsuperior.dscommerce.projections.ProductQuantityProjection;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem,OrderItemPK>{
 
+    @Query("SELECT i.id.product.id AS productId, SUM(i.quantity) AS quantity FROM OrderItem i "
+        + "WHERE i.id.order.id IN :orderIds GROUP BY i.id.product.id")
+    List<ProductQuantityProjection> sumQuantitiesByProduct(Collection<Long> orderIds);
 }
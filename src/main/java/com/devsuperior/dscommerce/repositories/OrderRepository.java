@@ -1,11 +1,73 @@
 package com.devsuperior.dscommerce.repositories;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.devsuperior.dscommerce.entities.Order;
+import com.devsuperior.dscommerce.entities.OrderStatus;
+
+import jakarta.persistence.LockModeType;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order,Long>{
 
+    @Query(value = "SELECT obj.id FROM Order obj WHERE obj.client.id = :clientId",
+        countQuery = "SELECT COUNT(obj) FROM Order obj WHERE obj.client.id = :clientId")
+    Page<Long> searchIdsByClient(Long clientId,Pageable pageable);
+
+    @Query(value = "SELECT obj.id FROM Order obj "
+        + "WHERE (:status IS NULL OR obj.status = :status) "
+        + "AND (:minDate IS NULL OR obj.moment >= :minDate) "
+        + "AND (:maxDate IS NULL OR obj.moment <= :maxDate)",
+        countQuery = "SELECT COUNT(obj) FROM Order obj "
+        + "WHERE (:status IS NULL OR obj.status = :status) "
+        + "AND (:minDate IS NULL OR obj.moment >= :minDate) "
+        + "AND (:maxDate IS NULL OR obj.moment <= :maxDate)")
+    Page<Long> searchIds(OrderStatus status,Instant minDate,Instant maxDate,Pageable pageable);
+
+    @Query("SELECT obj FROM Order obj "
+        + "JOIN FETCH obj.client "
+        + "LEFT JOIN FETCH obj.payment "
+        + "LEFT JOIN FETCH obj.items i "
+        + "LEFT JOIN FETCH i.id.product "
+        + "WHERE obj.id = :id")
+    Optional<Order> searchOrderWithItems(Long id);
+
+    // conditional, so of two concurrent transitions only one sees its update count
+    @Modifying
+    @Query("UPDATE Order obj SET obj.status = :status WHERE obj.id = :id AND obj.status IN :from")
+    int updateStatus(Long id,Collection<OrderStatus> from,OrderStatus status);
+
+    // locked in id order, so two bulk transitions over overlapping ids queue up instead of deadlocking
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT obj.id FROM Order obj WHERE obj.id IN :ids AND obj.status IN :from ORDER BY obj.id")
+    List<Long> lockIdsInStatus(Collection<Long> ids,Collection<OrderStatus> from);
+
+    @Modifying
+    @Query("UPDATE Order obj SET obj.status = :status WHERE obj.id IN :ids AND obj.status IN :from")
+    int updateStatuses(Collection<Long> ids,Collection<OrderStatus> from,OrderStatus status);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "INSERT INTO payments (order_id, moment) "
+        + "SELECT o.id, :moment FROM orders o "
+        + "WHERE o.id IN :ids AND NOT EXISTS (SELECT 1 FROM payments p WHERE p.order_id = o.id)")
+    int insertPayments(Collection<Long> ids,Instant moment);
+
+    @Query("SELECT DISTINCT obj FROM Order obj "
+        + "JOIN FETCH obj.client "
+        + "LEFT JOIN FETCH obj.payment "
+        + "LEFT JOIN FETCH obj.items i "
+        + "LEFT JOIN FETCH i.id.product "
+        + "WHERE obj.id IN :orderIds")
+    List<Order> searchOrdersWithItems(List<Long> orderIds);
 }
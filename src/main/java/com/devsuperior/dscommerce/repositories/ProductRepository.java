@@ -1,21 +1,27 @@
 package com.devsuperior.dscommerce.repositories;
 
 import java.util.List;
+import java.util.Optional;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.projections.ProductMinProjection;
 import com.devsuperior.dscommerce.projections.ProductProjection;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product,Long>{
+public interface ProductRepository extends JpaRepository<Product,Long>,ProductRepositoryCustom{
 
     @Query("SELECT obj FROM Product obj WHERE UPPER(obj.name) LIKE UPPER(CONCAT('%',:name,'%'))")
-    Page<Product> searchByName(String name,Pageable pageable);
+    List<Product> searchByName(String name,Pageable pageable);
+
+    @Query("SELECT obj FROM Product obj WHERE UPPER(obj.name) LIKE UPPER(CONCAT('%',:name,'%')) "
+        + "AND (obj.name > :afterName OR (obj.name = :afterName AND obj.id > :afterId)) "
+        + "ORDER BY obj.name, obj.id")
+    List<Product> searchByNameAfter(String name,String afterName,Long afterId,Pageable pageable);
 
     @Query(nativeQuery = true,value = 
         "SELECT * FROM ( "
@@ -24,18 +30,23 @@ public interface ProductRepository extends JpaRepository<Product,Long>{
         + "INNER JOIN product_category AS pc ON pc.product_id = p.id "
         + "WHERE (:categoryIds IS NULL OR pc.category_id IN :categoryIds) "
         + "AND LOWER(p.name) LIKE LOWER(CONCAT('%',:name,'%')) "
-        + ") AS result ",
-        countQuery = 
-        "SELECT COUNT(*) FROM ( "
-        + "SELECT DISTINCT p.id,p.name "
-        + "FROM products AS p "
-        + "INNER JOIN product_category AS pc ON pc.product_id = p.id "
-        + "WHERE (:categoryIds IS NULL OR pc.category_id IN :categoryIds) "
-        + "AND LOWER(p.name) LIKE LOWER(CONCAT('%',:name,'%')) "
         + ") AS result "
+        + "WHERE (result.name > :afterName OR (result.name = :afterName AND result.id > :afterId)) "
+        + "ORDER BY result.name, result.id"
     )
-    Page<ProductProjection> searchProducts(List<Long> categoryIds,String name,Pageable pageable);
+    List<ProductProjection> searchProductsAfter(List<Long> categoryIds,String name,String afterName,Long afterId,Pageable pageable);
+
+    // products without categories are still indexed for search
+    @Query("SELECT obj FROM Product obj LEFT JOIN FETCH obj.categories WHERE obj.id IN :productIds")
+    List<Product> searchProductsForIndex(List<Long> productIds);
+
+    // keyset paging: each batch starts at the index entry after the last id instead of skipping an offset
+    @Query("SELECT obj.id FROM Product obj WHERE obj.id > :lastId ORDER BY obj.id")
+    List<Long> searchIdsAfter(Long lastId,Pageable pageable);
+
+    @Query("SELECT obj.stock FROM Product obj WHERE obj.id = :id")
+    Optional<Integer> searchStock(Long id);
 
-    @Query("SELECT obj FROM Product obj JOIN FETCH obj.categories WHERE obj.id IN :productIds")
-    List<Product> searchProductsWithCategories(List<Long> productIds);
+    @Query("SELECT obj.id AS id,obj.name AS name,obj.price AS price,obj.imgUrl AS imgUrl FROM Product obj WHERE obj.id IN :productIds")
+    List<ProductMinProjection> searchProductsMin(List<Long> productIds);
 }
@@ -0,0 +1,26 @@
+package com.devsuperior.dscommerce.repositories;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.Pageable;
+
+import com.devsuperior.dscommerce.projections.ProductCategoryProjection;
+
+public interface ProductRepositoryCustom {
+
+    List<ProductCategoryProjection> searchProductPageWithCategories(List<Long> categoryIds,String name,Pageable pageable);
+
+    List<ProductCategoryProjection> searchProductRowsWithCategories(List<Long> productIds);
+
+    long countProducts(List<Long> categoryIds,String name,long limit);
+
+    long countProductsByName(String name,long limit);
+
+    // takes the quantities atomically per product; returns the ids whose stock was not enough, which were left untouched
+    List<Long> reserveStock(Map<Long,Integer> quantities);
+
+    void releaseStock(Map<Long,Integer> quantities);
+
+    boolean updateStock(Long productId,int stock);
+}
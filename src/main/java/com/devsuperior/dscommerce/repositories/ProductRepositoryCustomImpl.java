@@ -0,0 +1,241 @@
+package com.devsuperior.dscommerce.repositories;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+import org.hibernate.Session;
+
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import com.devsuperior.dscommerce.projections.ProductCategoryProjection;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    private static final Map<String,String> SORT_COLUMNS = Map.of(
+        "id", "id",
+        "name", "name",
+        "price", "price",
+        "imgUrl", "img_url");
+
+    private static final String NAME_FILTER = "LOWER(q.name) LIKE LOWER(CONCAT('%',:name,'%'))";
+
+    private static final String COLUMNS =
+        "p.id,p.name,p.description,p.price,p.img_url,c.id AS category_id,c.name AS category_name";
+
+    // the page of products is picked in the derived table, then joined to its categories
+    // so the whole page comes back in a single round-trip
+    private static final String PAGE_QUERY = """
+            SELECT %s
+            FROM (
+                SELECT q.id
+                FROM products AS q
+                WHERE %s
+                ORDER BY %s
+                LIMIT :limit OFFSET :offset
+            ) AS page
+            INNER JOIN products AS p ON p.id = page.id
+            INNER JOIN product_category AS pc ON pc.product_id = p.id
+            INNER JOIN categories AS c ON c.id = pc.category_id
+            ORDER BY %s,c.id
+            """;
+
+    private static final String IDS_QUERY = """
+            SELECT %s
+            FROM products AS p
+            INNER JOIN product_category AS pc ON pc.product_id = p.id
+            INNER JOIN categories AS c ON c.id = pc.category_id
+            WHERE p.id IN :productIds
+            ORDER BY p.id,c.id
+            """;
+
+    private static final String RESERVE_STOCK = "UPDATE products SET stock = stock - ? WHERE id = ? AND stock >= ?";
+    private static final String RELEASE_STOCK = "UPDATE products SET stock = stock + ? WHERE id = ?";
+    private static final String UPDATE_STOCK = "UPDATE products SET stock = :stock WHERE id = :id";
+
+    // counting stops after :limit matches, callers treat a full count as an estimate
+    private static final String COUNT_QUERY = """
+            SELECT COUNT(*) FROM (
+                SELECT 1 FROM products AS q WHERE %s LIMIT :limit
+            ) AS capped
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProductCategoryProjection> searchProductPageWithCategories(List<Long> categoryIds,String name,Pageable pageable){
+        String sql = PAGE_QUERY.formatted(COLUMNS, where(categoryIds), orderBy(pageable.getSort(), "q"), orderBy(pageable.getSort(), "p"));
+        NativeQuery<Object[]> query = nativeQuery(sql);
+        addProductScalars(query);
+        bind(query, categoryIds, name);
+        query.setParameter("limit", pageable.getPageSize());
+        query.setParameter("offset", pageable.getOffset());
+        return query.getResultList().stream().map(ProductRepositoryCustomImpl::toRow).toList();
+    }
+
+    @Override
+    public List<ProductCategoryProjection> searchProductRowsWithCategories(List<Long> productIds){
+        NativeQuery<Object[]> query = nativeQuery(IDS_QUERY.formatted(COLUMNS));
+        addProductScalars(query);
+        query.setParameter("productIds", productIds);
+        return query.getResultList().stream().map(ProductRepositoryCustomImpl::toRow).toList();
+    }
+
+    @Override
+    public long countProducts(List<Long> categoryIds,String name,long limit){
+        Query query = entityManager.createNativeQuery(COUNT_QUERY.formatted(where(categoryIds)), Long.class);
+        bind(query, categoryIds, name);
+        query.setParameter("limit", limit);
+        return (Long) query.getSingleResult();
+    }
+
+    @Override
+    public long countProductsByName(String name,long limit){
+        Query query = entityManager.createNativeQuery(COUNT_QUERY.formatted(NAME_FILTER), Long.class);
+        query.setParameter("name", name);
+        query.setParameter("limit", limit);
+        return (Long) query.getSingleResult();
+    }
+
+    @Override
+    public List<Long> reserveStock(Map<Long,Integer> quantities){
+        TreeMap<Long,Integer> sorted = new TreeMap<>(quantities);
+        int[] counts = executeStockBatch(RESERVE_STOCK, sorted, true);
+        List<Long> ids = new ArrayList<>(sorted.keySet());
+        List<Long> insufficient = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            // drivers may answer SUCCESS_NO_INFO for a batched row, only an explicit 0 means the guard failed
+            if (counts[i] == 0) {
+                insufficient.add(ids.get(i));
+            }
+        }
+        return insufficient;
+    }
+
+    @Override
+    public void releaseStock(Map<Long,Integer> quantities){
+        executeStockBatch(RELEASE_STOCK, new TreeMap<>(quantities), false);
+    }
+
+    @Override
+    public boolean updateStock(Long productId,int stock){
+        return entityManager.createNativeQuery(UPDATE_STOCK)
+                .setParameter("stock", stock)
+                .setParameter("id", productId)
+                .executeUpdate() > 0;
+    }
+
+    // one JDBC batch for all products of the order, in id order so concurrent orders lock the rows in the same order
+    private int[] executeStockBatch(String sql,TreeMap<Long,Integer> quantities,boolean guarded){
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (Map.Entry<Long,Integer> x : quantities.entrySet()) {
+                    statement.setInt(1, x.getValue());
+                    statement.setLong(2, x.getKey());
+                    if (guarded) {
+                        statement.setInt(3, x.getValue());
+                    }
+                    statement.addBatch();
+                }
+                return statement.executeBatch();
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private NativeQuery<Object[]> nativeQuery(String sql){
+        return entityManager.createNativeQuery(sql, Object[].class).unwrap(NativeQuery.class);
+    }
+
+    // declared explicitly so the TEXT description comes back as a String on every dialect
+    private static void addProductScalars(NativeQuery<Object[]> query){
+        query.addScalar("id", StandardBasicTypes.LONG)
+            .addScalar("name", StandardBasicTypes.STRING)
+            .addScalar("description", StandardBasicTypes.TEXT)
+            .addScalar("price", StandardBasicTypes.DOUBLE)
+            .addScalar("img_url", StandardBasicTypes.STRING)
+            .addScalar("category_id", StandardBasicTypes.LONG)
+            .addScalar("category_name", StandardBasicTypes.STRING);
+    }
+
+    private static String where(List<Long> categoryIds){
+        String categoryFilter = (categoryIds.isEmpty()) ? "" : "AND pc.category_id IN :categoryIds ";
+        return "EXISTS (SELECT 1 FROM product_category AS pc WHERE pc.product_id = q.id " + categoryFilter + ") "
+             + "AND " + NAME_FILTER;
+    }
+
+    private static void bind(Query query,List<Long> categoryIds,String name){
+        if (!categoryIds.isEmpty()) {
+            query.setParameter("categoryIds", categoryIds);
+        }
+        query.setParameter("name", name);
+    }
+
+    // only whitelisted columns are concatenated into the statement; the id keeps the order total
+    private static String orderBy(Sort sort,String alias){
+        StringJoiner joiner = new StringJoiner(",");
+        for (Sort.Order order : sort) {
+            String column = SORT_COLUMNS.get(order.getProperty());
+            if (column != null) {
+                joiner.add(alias + "." + column + (order.isDescending() ? " DESC" : " ASC"));
+            }
+        }
+        joiner.add(alias + ".id");
+        return joiner.toString();
+    }
+
+    private static ProductCategoryProjection toRow(Object[] row){
+        return new Row((Long) row[0], (String) row[1], (String) row[2], (Double) row[3],
+                       (String) row[4], (Long) row[5], (String) row[6]);
+    }
+
+    private record Row(Long id,String name,String description,Double price,
+                       String imgUrl,Long categoryId,String categoryName) implements ProductCategoryProjection {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getDescription() {
+            return description;
+        }
+
+        @Override
+        public Double getPrice() {
+            return price;
+        }
+
+        @Override
+        public String getImgUrl() {
+            return imgUrl;
+        }
+
+        @Override
+        public Long getCategoryId() {
+            return categoryId;
+        }
+
+        @Override
+        public String getCategoryName() {
+            return categoryName;
+        }
+    }
+}
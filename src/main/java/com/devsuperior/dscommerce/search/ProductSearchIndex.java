@@ -0,0 +1,270 @@
+package com.devsuperior.dscommerce.search;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.ngram.NGramTokenFilter;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleDocValuesField;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.stereotype.Component;
+
+import com.devsuperior.dscommerce.entities.Category;
+import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+@Component
+public class ProductSearchIndex {
+
+    private static final String ID = "id";
+    private static final String ID_SORT = "id_sort";
+    private static final String NAME = "name";
+    private static final String NAME_GRAMS = "name_grams";
+    private static final String NAME_SORT = "name_sort";
+    private static final String PRICE = "price";
+    private static final String CATEGORY = "category";
+
+    private static final Set<String> SORTABLE = Set.of(ID, NAME, PRICE);
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    private static final int MAX_GRAM = 20;
+
+    @Autowired
+    private ProductRepository repository;
+
+    @Value("${search.index.path}")
+    private String indexPath;
+
+    private final Analyzer analyzer = new StandardAnalyzer(CharArraySet.EMPTY_SET);
+
+    // every substring of a name word up to MAX_GRAM chars becomes a term, so LIKE '%token%' is a term lookup
+    private final Analyzer gramAnalyzer = new Analyzer() {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer source = new StandardTokenizer();
+            TokenStream result = new NGramTokenFilter(new LowerCaseFilter(source), 1, MAX_GRAM, true);
+            return new TokenStreamComponents(source, result);
+        }
+    };
+
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private volatile boolean ready = false;
+
+    @PostConstruct
+    public void open() throws IOException {
+        directory = (indexPath == null || indexPath.isBlank()) ? new ByteBuffersDirectory()
+                                                                : FSDirectory.open(Path.of(indexPath));
+        IndexWriterConfig config = new IndexWriterConfig(new PerFieldAnalyzerWrapper(analyzer, Map.of(NAME_GRAMS, gramAnalyzer)));
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        writer = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(writer, null);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        ready = false;
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() throws IOException {
+        ready = false;
+        writer.deleteAll();
+        List<Long> ids = repository.searchIdsAfter(0L, PageRequest.of(0, REBUILD_BATCH_SIZE));
+        while (!ids.isEmpty()) {
+            for (Product product : repository.searchProductsForIndex(ids)) {
+                writer.updateDocument(new Term(ID, product.getId().toString()), toDocument(product));
+            }
+            if (ids.size() < REBUILD_BATCH_SIZE) {
+                break;
+            }
+            ids = repository.searchIdsAfter(ids.get(ids.size() - 1), PageRequest.of(0, REBUILD_BATCH_SIZE));
+        }
+        writer.commit();
+        searcherManager.maybeRefreshBlocking();
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean supports(Pageable pageable) {
+        return ready && pageable.getSort().stream().allMatch(order -> SORTABLE.contains(order.getProperty()));
+    }
+
+    public void index(Product product) {
+        try {
+            writer.updateDocument(new Term(ID, product.getId().toString()), toDocument(product));
+            // blocking: a plain maybeRefresh skips when another write is refreshing, leaving this change unseen
+            searcherManager.maybeRefreshBlocking();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void delete(Long id) {
+        try {
+            writer.deleteDocuments(new Term(ID, id.toString()));
+            searcherManager.maybeRefreshBlocking();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Page<Long> search(String name, List<Long> categoryIds, Pageable pageable) {
+        Query query = buildQuery(name, categoryIds);
+        int offset = (int) pageable.getOffset();
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                int total = searcher.count(query);
+                List<Long> ids = new ArrayList<>(pageable.getPageSize());
+                if (offset < total) {
+                    TopFieldDocs top = searcher.search(query, offset + pageable.getPageSize(), buildSort(pageable));
+                    for (int i = offset; i < top.scoreDocs.length; i++) {
+                        ScoreDoc hit = top.scoreDocs[i];
+                        ids.add(Long.valueOf(searcher.storedFields().document(hit.doc).get(ID)));
+                    }
+                }
+                return new PageImpl<>(ids, pageable, total);
+            }
+            finally {
+                searcherManager.release(searcher);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Document toDocument(Product product) {
+        Document doc = new Document();
+        doc.add(new StringField(ID, product.getId().toString(), Field.Store.YES));
+        doc.add(new NumericDocValuesField(ID_SORT, product.getId()));
+        doc.add(new TextField(NAME_GRAMS, product.getName(), Field.Store.NO));
+        doc.add(new SortedDocValuesField(NAME_SORT, new BytesRef(product.getName())));
+        if (product.getPrice() != null) {
+            doc.add(new DoubleDocValuesField(PRICE, product.getPrice()));
+        }
+        for (Category category : product.getCategories()) {
+            doc.add(new StringField(CATEGORY, category.getId().toString(), Field.Store.NO));
+        }
+        return doc;
+    }
+
+    private Query buildQuery(String name, List<Long> categoryIds) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        builder.add(new MatchAllDocsQuery(), BooleanClause.Occur.FILTER);
+        // each token behaves like LIKE '%token%' over the name words instead of scanning every row
+        for (String token : tokenize(name)) {
+            builder.add(gramQuery(token), BooleanClause.Occur.FILTER);
+        }
+        if (!categoryIds.isEmpty()) {
+            List<BytesRef> terms = categoryIds.stream().map(id -> new BytesRef(id.toString())).toList();
+            builder.add(new TermInSetQuery(CATEGORY, terms), BooleanClause.Occur.FILTER);
+        }
+        return builder.build();
+    }
+
+    private Sort buildSort(Pageable pageable) {
+        List<SortField> fields = new ArrayList<>();
+        pageable.getSort().forEach(order -> {
+            boolean reverse = order.getDirection() == Direction.DESC;
+            switch (order.getProperty()) {
+                case NAME -> fields.add(new SortField(NAME_SORT, SortField.Type.STRING, reverse));
+                case PRICE -> fields.add(new SortField(PRICE, SortField.Type.DOUBLE, reverse));
+                default -> fields.add(new SortField(ID_SORT, SortField.Type.LONG, reverse));
+            }
+        });
+        fields.add(new SortField(ID_SORT, SortField.Type.LONG));
+        return new Sort(fields.toArray(SortField[]::new));
+    }
+
+    private List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        try (TokenStream stream = analyzer.tokenStream(NAME, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(term.toString());
+            }
+            stream.end();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tokens;
+    }
+
+    private static Query gramQuery(String token) {
+        if (token.length() <= MAX_GRAM) {
+            return new TermQuery(new Term(NAME_GRAMS, token));
+        }
+        // longer tokens were indexed only as their grams and the whole word, so require every gram of the token
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (int i = 0; i + MAX_GRAM <= token.length(); i++) {
+            builder.add(new TermQuery(new Term(NAME_GRAMS, token.substring(i, i + MAX_GRAM))), BooleanClause.Occur.FILTER);
+        }
+        return builder.build();
+    }
+}
@@ -6,6 +6,7 @@ import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -14,11 +15,16 @@ import com.devsuperior.dscommerce.dtos.EmailDTO;
 import com.devsuperior.dscommerce.dtos.NewPasswordDTO;
 import com.devsuperior.dscommerce.entities.PasswordRecover;
 import com.devsuperior.dscommerce.entities.User;
+import com.devsuperior.dscommerce.events.UserChangedEvent;
 import com.devsuperior.dscommerce.repositories.PasswordRecoverRepository;
 import com.devsuperior.dscommerce.repositories.UserRepository;
 import com.devsuperior.dscommerce.services.exceptions.ForbiddenException;
 import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
+import com.devsuperior.dscommerce.util.CustomUserUtils;
 
+import io.micrometer.core.annotation.Timed;
+
+@Timed(value = "dscommerce.service", histogram = true)
 @Service
 public class AuthService {
 
@@ -38,11 +44,17 @@ public class AuthService {
     private String recoverUri;
 
     @Autowired
-    private EmailService emailService;
+    private EmailOutboxService emailOutboxService;
 
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private CustomUserUtils customUserUtils;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Transactional
     public void createRecoverToken(EmailDTO obj){
 
@@ -64,7 +76,7 @@ public class AuthService {
         String body = "Clique no link a seguir para criar uma nova senha:\n\n"
                     + recoverUri + token + "\n\nVálido por " + tokenMinutes + " minutos";
 
-        emailService.sendEmail(user.getEmail(), "Recuperação de Senha", body);
+        emailOutboxService.enqueue(user.getEmail(), "Recuperação de Senha", body);
 
     }
 
@@ -77,14 +89,14 @@ public class AuthService {
         User user = userRepository.findByEmail(result.get(0).getEmail());
         user.setPassword(passwordEncoder.encode(obj.getPassword()));
         user = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getEmail()));
     }
 
     public void validateSelfOrAdmin(Long userId){
-        User me = userService.authenticated();
-        if (me.hasRole("ROLE_ADMIN")){
+        if (customUserUtils.hasAuthority("ROLE_ADMIN")){
             return;
         }
-        if (!me.getId().equals(userId)) {
+        if (!userService.authenticatedId().equals(userId)) {
             throw new ForbiddenException("Access Denied. Should be Self or Admin");
         }
     }
@@ -1,42 +1,61 @@
 package com.devsuperior.dscommerce.services;
 
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
-
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.devsuperior.dscommerce.controllers.CategoryController;
 import com.devsuperior.dscommerce.controllers.ProductController;
 import com.devsuperior.dscommerce.dtos.CategoryDTO;
+import com.devsuperior.dscommerce.dtos.CountedPageDTO;
 import com.devsuperior.dscommerce.dtos.ProductMinDTO;
+import com.devsuperior.dscommerce.projections.ProductMinProjection;
 import com.devsuperior.dscommerce.repositories.CategoryRepository;
+import com.devsuperior.dscommerce.services.ProductCountService.CountKey;
+import com.devsuperior.dscommerce.services.ProductCountService.ProductCount;
+import com.devsuperior.dscommerce.services.ProductCountService.Scope;
+import com.devsuperior.dscommerce.util.LinkTemplate;
+
+import io.micrometer.core.annotation.Timed;
 
+@Timed(value = "dscommerce.service", histogram = true)
 @Service
 public class CategoryService {
 
+    private static final LinkTemplate CATEGORIES = LinkTemplate.of(CategoryController.class, "findAll");
+    private static final LinkTemplate CATEGORY_PRODUCTS = LinkTemplate.of(CategoryController.class, "findProductsByCategory", Long.class, Pageable.class);
+    private static final LinkTemplate PRODUCT_BY_ID = LinkTemplate.of(ProductController.class, "findById", Long.class);
+
     @Autowired
     private CategoryRepository repository;
 
+    @Autowired
+    private ProductCountService countService;
+
     @Transactional(readOnly = true)
     public List<CategoryDTO> findAll(){
-        return repository.findAll().stream().map(x -> new CategoryDTO(x).
-            add(linkTo(methodOn(CategoryController.class).
-            findProductsByCategory(x.getId(),null)).withRel("Consultar Produtos da Categoria " + x.getName()))
-            .add(linkTo(methodOn(CategoryController.class).findAll()).withSelfRel())).toList();
+        String baseUri = LinkTemplate.currentBaseUri();
+        Link self = CATEGORIES.link(baseUri, IanaLinkRelations.SELF);
+        return repository.findAll().stream().map(x -> new CategoryDTO(x)
+            .add(CATEGORY_PRODUCTS.link(baseUri, "Consultar Produtos da Categoria " + x.getName(), x.getId()))
+            .add(self)).toList();
     }
 
     @Transactional(readOnly = true)
     public Page<ProductMinDTO> findProductsByCategory(Long id,Pageable pageable){
-        return repository.findProductsByCategory(id, pageable).map(x -> new ProductMinDTO(x).
-            add(linkTo(methodOn(ProductController.class).
-            findById(x.getId())).withRel("Consultar Produto por Id"))
-            .add(linkTo(methodOn(CategoryController.class).findProductsByCategory(id, pageable))
-            .withSelfRel()));
+        List<ProductMinProjection> content = repository.findProductsByCategory(id, pageable);
+        ProductCount count = countService.count(CountKey.of(Scope.CATEGORY, "", List.of(id)), pageable, content.size(),
+                                                limit -> repository.countProductsByCategory(id, limit));
+        Page<ProductMinProjection> page = new CountedPageDTO<>(content, pageable, count.total(), count.exact());
+        String baseUri = LinkTemplate.currentBaseUri();
+        Link self = CATEGORY_PRODUCTS.link(baseUri, IanaLinkRelations.SELF, id);
+        return page.map(x -> new ProductMinDTO(x)
+            .add(PRODUCT_BY_ID.link(baseUri, "Consultar Produto por Id", x.getId())).add(self));
     }
 }
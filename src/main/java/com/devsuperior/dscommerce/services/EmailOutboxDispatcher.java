@@ -0,0 +1,96 @@
+package com.devsuperior.dscommerce.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.devsuperior.dscommerce.entities.EmailOutbox;
+import com.devsuperior.dscommerce.entities.EmailOutboxStatus;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+// sends what EmailOutboxService.enqueue committed, one SMTP connection per batch, outside any transaction
+@Component
+public class EmailOutboxDispatcher implements MeterBinder {
+
+    @Autowired
+    private EmailOutboxService outboxService;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // refreshed on a schedule, so scrapes do not each run a count on the outbox table
+    private final Map<EmailOutboxStatus, AtomicLong> counts = new EnumMap<>(Map.of(EmailOutboxStatus.PENDING, new AtomicLong(),
+                                                                                   EmailOutboxStatus.DEAD, new AtomicLong()));
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-millis}")
+    public int dispatch(){
+        List<EmailOutbox> batch = outboxService.claimDue();
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<SimpleMailMessage> messages = new ArrayList<>(batch.size());
+        for (EmailOutbox x : batch) {
+            messages.add(emailService.message(x.getRecipient(), x.getSubject(), x.getBody()));
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Map<SimpleMailMessage, Exception> failed = emailService.send(messages);
+        sample.stop(meterRegistry.timer("dscommerce.email.outbox.batch", "outcome", failed.isEmpty() ? "sent" : "failed"));
+
+        Instant now = Instant.now();
+        List<Long> sentIds = new ArrayList<>(batch.size());
+        Map<Long, String> failures = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            EmailOutbox x = batch.get(i);
+            Exception error = failed.get(messages.get(i));
+            if (error == null) {
+                sentIds.add(x.getId());
+                meterRegistry.timer("dscommerce.email.outbox.delivery").record(Duration.between(x.getCreatedAt(), now));
+            }
+            else {
+                failures.put(x.getId(), error.getMessage());
+            }
+        }
+        outboxService.complete(sentIds, failures);
+        meterRegistry.counter("dscommerce.email.outbox.sends", "outcome", "sent").increment(sentIds.size());
+        meterRegistry.counter("dscommerce.email.outbox.sends", "outcome", "failed").increment(failures.size());
+        return sentIds.size();
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.purge-interval-seconds}", timeUnit = TimeUnit.SECONDS)
+    public int purge(){
+        int purged = outboxService.purge();
+        meterRegistry.counter("dscommerce.email.outbox.purged").increment(purged);
+        return purged;
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.count-interval-seconds}", timeUnit = TimeUnit.SECONDS)
+    public void refreshCounts(){
+        counts.forEach((status, count) -> count.set(outboxService.countByStatus(status)));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry){
+        counts.forEach((status, count) -> Gauge.builder("dscommerce.email.outbox", count, AtomicLong::get)
+                                               .tag("status", status.name().toLowerCase())
+                                               .register(registry));
+    }
+}
@@ -0,0 +1,105 @@
+package com.devsuperior.dscommerce.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.devsuperior.dscommerce.entities.EmailOutbox;
+import com.devsuperior.dscommerce.entities.EmailOutboxStatus;
+import com.devsuperior.dscommerce.repositories.EmailOutboxRepository;
+
+@Service
+public class EmailOutboxService {
+
+    private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+
+    @Autowired
+    private EmailOutboxRepository repository;
+
+    @Value("${email.outbox.batch-size}")
+    private Integer batchSize;
+
+    @Value("${email.outbox.max-attempts}")
+    private Integer maxAttempts;
+
+    @Value("${email.outbox.backoff-seconds}")
+    private Long backoffSeconds;
+
+    @Value("${email.outbox.lease-seconds}")
+    private Long leaseSeconds;
+
+    @Value("${email.outbox.sent-retention-seconds}")
+    private Long sentRetentionSeconds;
+
+    @Value("${email.outbox.dead-retention-seconds}")
+    private Long deadRetentionSeconds;
+
+    // part of the caller's transaction: the email exists only if the data it talks about was committed
+    @Transactional(propagation = Propagation.MANDATORY)
+    public EmailOutbox enqueue(String to, String subject, String body){
+        return repository.save(new EmailOutbox(to, subject, body, Instant.now()));
+    }
+
+    // the lease keeps the claimed rows away from other dispatchers while this one talks to the SMTP server
+    @Transactional
+    public List<EmailOutbox> claimDue(){
+        Instant now = Instant.now();
+        List<EmailOutbox> due = repository.searchDue(EmailOutboxStatus.PENDING, now, PageRequest.of(0, batchSize));
+        for (EmailOutbox x : due) {
+            x.setNextAttemptAt(now.plusSeconds(leaseSeconds));
+        }
+        return due;
+    }
+
+    @Transactional
+    public void complete(List<Long> sentIds, Map<Long, String> failures){
+        Instant now = Instant.now();
+        for (EmailOutbox x : repository.findAllById(sentIds)) {
+            x.setStatus(EmailOutboxStatus.SENT);
+            x.setAttempts(x.getAttempts() + 1);
+            x.setSentAt(now);
+            x.setLastError(null);
+        }
+        for (EmailOutbox x : repository.findAllById(failures.keySet())) {
+            int attempts = x.getAttempts() + 1;
+            x.setAttempts(attempts);
+            x.setLastError(truncate(failures.get(x.getId())));
+            if (attempts >= maxAttempts) {
+                x.setStatus(EmailOutboxStatus.DEAD);
+            }
+            else {
+                x.setNextAttemptAt(now.plus(backoff(attempts)));
+            }
+        }
+    }
+
+    // the bodies carry password recovery links, so rows are not kept once they stop being useful
+    @Transactional
+    public int purge(){
+        Instant now = Instant.now();
+        return repository.deleteExpired(EmailOutboxStatus.SENT, now.minusSeconds(sentRetentionSeconds),
+                                        EmailOutboxStatus.DEAD, now.minusSeconds(deadRetentionSeconds));
+    }
+
+    public long countByStatus(EmailOutboxStatus status){
+        return repository.countByStatus(status);
+    }
+
+    // backoff-seconds, doubled after each failed attempt, up to one hour
+    Duration backoff(int attempts){
+        Duration backoff = Duration.ofSeconds(backoffSeconds).multipliedBy(1L << Math.min(attempts - 1, 20));
+        return (backoff.compareTo(MAX_BACKOFF) > 0) ? MAX_BACKOFF : backoff;
+    }
+
+    private static String truncate(String error){
+        return (error == null || error.length() <= 500) ? error : error.substring(0, 500);
+    }
+}
@@ -1,14 +1,17 @@
 package com.devsuperior.dscommerce.services;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
-import com.devsuperior.dscommerce.services.exceptions.EmailException;
-
 @Service
 public class EmailService {
 
@@ -18,17 +21,39 @@ public class EmailService {
     @Value("${spring.mail.username}")
     private String emailFrom;
 
-    public void sendEmail(String to,String subject,String body){
+    public SimpleMailMessage message(String to,String subject,String body){
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(emailFrom);
+        message.setTo(to);
+        message.setSubject(subject);
+        message.setText(body);
+        return message;
+    }
+
+    // one SMTP connection for the whole batch; returns the messages that were not accepted, with the reason
+    public Map<SimpleMailMessage, Exception> send(List<SimpleMailMessage> messages){
         try{
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(emailFrom);
-            message.setTo(to);
-            message.setSubject(subject);
-            message.setText(body);
-            emailSender.send(message);
+            emailSender.send(messages.toArray(SimpleMailMessage[]::new));
+            return Map.of();
+        }
+        catch(MailSendException e){
+            if (e.getFailedMessages().isEmpty()) {
+                return allFailed(messages, e);
+            }
+            Map<SimpleMailMessage, Exception> failed = new HashMap<>();
+            e.getFailedMessages().forEach((message, error) -> failed.put((SimpleMailMessage) message, error));
+            return failed;
         }
         catch(MailException e){
-            throw new EmailException("Falha ao enviar email");
+            return allFailed(messages, e);
+        }
+    }
+
+    private static Map<SimpleMailMessage, Exception> allFailed(List<SimpleMailMessage> messages, Exception e){
+        Map<SimpleMailMessage, Exception> failed = new HashMap<>();
+        for (SimpleMailMessage message : messages) {
+            failed.put(message, e);
         }
+        return failed;
     }
 }
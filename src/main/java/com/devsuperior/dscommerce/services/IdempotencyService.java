@@ -0,0 +1,102 @@
+package com.devsuperior.dscommerce.services;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import com.devsuperior.dscommerce.config.idempotency.IdempotencyStore;
+import com.devsuperior.dscommerce.config.idempotency.IdempotencyStore.StoredResponse;
+import com.devsuperior.dscommerce.util.CustomUserUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    @Autowired
+    private IdempotencyStore store;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CustomUserUtils customUserUtils;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${idempotency.wait-timeout-millis}")
+    private Long waitTimeoutMillis;
+
+    // runs action once per (operation, user, key); a failed action releases the key so the client can retry it
+    public <T> ResponseEntity<T> execute(String operation, String key, Object request, Class<T> bodyType, Supplier<ResponseEntity<T>> action){
+        String storeKey = sha256(operation + "\n" + customUserUtils.getLoggedUsername() + "\n" + key);
+        String fingerprint = sha256(json(request));
+        StoredResponse stored = store.claim(storeKey, fingerprint, Duration.ofMillis(waitTimeoutMillis));
+        if (stored != null) {
+            meterRegistry.counter("dscommerce.idempotency.requests", "outcome", "replayed").increment();
+            return replay(stored, bodyType);
+        }
+
+        ResponseEntity<T> response;
+        try {
+            response = action.get();
+        }
+        catch (RuntimeException e) {
+            store.release(storeKey);
+            throw e;
+        }
+        URI location = response.getHeaders().getLocation();
+        store.complete(storeKey, fingerprint, new StoredResponse(response.getStatusCode().value(),
+                                                                 (location == null) ? null : location.toString(),
+                                                                 json(response.getBody())));
+        meterRegistry.counter("dscommerce.idempotency.requests", "outcome", "executed").increment();
+        return response;
+    }
+
+    private <T> ResponseEntity<T> replay(StoredResponse stored, Class<T> bodyType){
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(stored.status()).header(REPLAYED_HEADER, "true");
+        if (stored.location() != null) {
+            builder.location(URI.create(stored.location()));
+        }
+        try {
+            return builder.body(objectMapper.readValue(stored.body(), bodyType));
+        }
+        catch (JsonProcessingException e) {
+            throw new IllegalStateException("Resposta armazenada inválida", e);
+        }
+    }
+
+    private String json(Object value){
+        try {
+            return objectMapper.writeValueAsString(value);
+        }
+        catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static String sha256(String value){
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
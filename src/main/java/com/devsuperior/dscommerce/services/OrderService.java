@@ -1,13 +1,25 @@
 package com.devsuperior.dscommerce.services;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.devsuperior.dscommerce.dtos.OrderDTO;
 import com.devsuperior.dscommerce.dtos.OrderItemDTO;
+import com.devsuperior.dscommerce.dtos.PaymentDTO;
 import com.devsuperior.dscommerce.entities.Order;
 import com.devsuperior.dscommerce.entities.OrderItem;
 import com.devsuperior.dscommerce.entities.OrderStatus;
@@ -16,8 +28,15 @@ import com.devsuperior.dscommerce.entities.User;
 import com.devsuperior.dscommerce.repositories.OrderItemRepository;
 import com.devsuperior.dscommerce.repositories.OrderRepository;
 import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.services.exceptions.InsufficientStockException;
+import com.devsuperior.dscommerce.services.exceptions.InvalidOrderStatusException;
 import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
+import com.devsuperior.dscommerce.util.CustomUserUtils;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Timed(value = "dscommerce.service", histogram = true)
 @Service
 public class OrderService {
 
@@ -28,22 +47,49 @@ public class OrderService {
     private UserService userService;
 
     @Autowired
-    private ProductRepository productRepository;
+    private OrderItemRepository orderItemRepository;
 
     @Autowired
-    private OrderItemRepository orderItemRepository;
+    private ProductRepository productRepository;
 
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private CustomUserUtils customUserUtils;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Transactional(readOnly = true)
     public OrderDTO findById(Long id){
-        Order order = repository.findById(id).orElseThrow(() -> 
+        Order order = repository.searchOrderWithItems(id).orElseThrow(() -> 
                     new ResourceNotFoundException(id));
         authService.validateSelfOrAdmin(order.getClient().getId());
         return new OrderDTO(order);
     }
 
+    @Transactional(readOnly = true)
+    public Page<OrderDTO> findMine(Pageable pageable){
+        return loadOrders(repository.searchIdsByClient(userService.authenticatedId(), pageable));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<OrderDTO> findAll(OrderStatus status,Instant minDate,Instant maxDate,Pageable pageable){
+        return loadOrders(repository.searchIds(status, minDate, maxDate, pageable));
+    }
+
+    // the page is picked by id first so LIMIT applies to orders, then the whole graph comes in one fetch join
+    private Page<OrderDTO> loadOrders(Page<Long> ids){
+        if (ids.isEmpty()) {
+            return new PageImpl<>(List.of(), ids.getPageable(), ids.getTotalElements());
+        }
+        Map<Long, Order> orders = repository.searchOrdersWithItems(ids.getContent()).stream()
+                                    .collect(Collectors.toMap(Order::getId, Function.identity()));
+        List<OrderDTO> content = ids.getContent().stream().map(id -> new OrderDTO(orders.get(id))).toList();
+        return new PageImpl<>(content, ids.getPageable(), ids.getTotalElements());
+    }
+
     @Transactional
     public OrderDTO insert(OrderDTO dto){
         Order order = new Order();
@@ -52,13 +98,98 @@ public class OrderService {
         User user = userService.authenticated();
         order.setClient(user);
         
+        Map<Long, Product> products = findProducts(dto.getItems());
+        // reserved before the items are written: their foreign key check share-locks the product rows,
+        // and upgrading that lock afterwards would deadlock concurrent checkouts of the same product on MySQL
+        List<Long> insufficient = productRepository.reserveStock(quantities(dto.getItems()));
+        if (!insufficient.isEmpty()) {
+            meterRegistry.counter("dscommerce.orders.rejected", "reason", "stock").increment();
+            throw new InsufficientStockException("Estoque insuficiente! Ids: " + insufficient);
+        }
         for (OrderItemDTO x : dto.getItems()){
-            Product prod = productRepository.getReferenceById(x.getProductId());
+            Product prod = products.get(x.getProductId());
             OrderItem orderItem = new OrderItem(order,prod,x.getQuantity(),prod.getPrice());
             order.getItems().add(orderItem);
         }
+        // items are persisted by cascade and flushed as one JDBC batch (hibernate.jdbc.batch_size)
         order = repository.save(order);
-        orderItemRepository.saveAll(order.getItems());
+        meterRegistry.counter("dscommerce.orders.created").increment();
+        meterRegistry.summary("dscommerce.orders.items").record(order.getItems().size());
         return new OrderDTO(order);
     }
+
+    @Transactional
+    public OrderDTO cancel(Long id){
+        Order order = repository.searchOrderWithItems(id).orElseThrow(() -> 
+                    new ResourceNotFoundException(id));
+        authService.validateSelfOrAdmin(order.getClient().getId());
+        // a client may only withdraw an unpaid order: cancelling a paid one releases stock without a refund, so it stays with admins
+        Set<OrderStatus> cancelable = customUserUtils.hasAuthority("ROLE_ADMIN") ? OrderStatus.CANCELED.previous() : EnumSet.of(OrderStatus.WAITING_PAYMENT);
+        if (repository.updateStatus(id, cancelable, OrderStatus.CANCELED) == 0) {
+            throw new InvalidOrderStatusException("Pedido não pode ser cancelado no status " + order.getStatus());
+        }
+        OrderDTO dto = new OrderDTO(order);
+        productRepository.releaseStock(quantities(dto.getItems()));
+        dto.setStatus(OrderStatus.CANCELED);
+        return dto;
+    }
+
+    @Transactional
+    public OrderDTO updateStatus(Long id, OrderStatus status){
+        if (status == OrderStatus.CANCELED) {
+            return cancel(id);
+        }
+        Order order = repository.searchOrderWithItems(id).orElseThrow(() -> 
+                    new ResourceNotFoundException(id));
+        if (!order.getStatus().canTransitionTo(status)
+                || repository.updateStatus(id, status.previous(), status) == 0) {
+            throw new InvalidOrderStatusException("Pedido não pode passar de " + order.getStatus() + " para " + status);
+        }
+        OrderDTO dto = new OrderDTO(order);
+        if (status == OrderStatus.PAID) {
+            Instant now = Instant.now();
+            repository.insertPayments(List.of(id), now);
+            dto.setPayment(new PaymentDTO(id, now));
+        }
+        dto.setStatus(status);
+        meterRegistry.counter("dscommerce.orders.transitions", "status", status.name().toLowerCase()).increment();
+        return dto;
+    }
+
+    // one chunk of a bulk transition: a fixed number of statements whatever its size,
+    // returns the ids that moved; missing ids and those in a status that cannot move are left alone
+    @Transactional
+    public List<Long> updateStatuses(Collection<Long> ids, OrderStatus status){
+        List<Long> eligible = repository.lockIdsInStatus(ids, status.previous());
+        if (eligible.isEmpty()) {
+            return eligible;
+        }
+        repository.updateStatuses(eligible, status.previous(), status);
+        if (status == OrderStatus.PAID) {
+            repository.insertPayments(eligible, Instant.now());
+        }
+        else if (status == OrderStatus.CANCELED) {
+            Map<Long, Integer> quantities = new TreeMap<>();
+            orderItemRepository.sumQuantitiesByProduct(eligible)
+                .forEach(x -> quantities.put(x.getProductId(), Math.toIntExact(x.getQuantity())));
+            productRepository.releaseStock(quantities);
+        }
+        meterRegistry.counter("dscommerce.orders.transitions", "status", status.name().toLowerCase()).increment(eligible.size());
+        return eligible;
+    }
+
+    private static Map<Long, Integer> quantities(List<OrderItemDTO> items){
+        return items.stream().collect(Collectors.toMap(OrderItemDTO::getProductId, OrderItemDTO::getQuantity, Integer::sum, TreeMap::new));
+    }
+
+    private Map<Long, Product> findProducts(List<OrderItemDTO> items){
+        Set<Long> ids = items.stream().map(OrderItemDTO::getProductId).collect(Collectors.toSet());
+        Map<Long, Product> products = productRepository.findAllById(ids).stream()
+                                        .collect(Collectors.toMap(Product::getId, Function.identity()));
+        if (products.size() < ids.size()) {
+            List<Long> missing = ids.stream().filter(id -> !products.containsKey(id)).sorted().toList();
+            throw new ResourceNotFoundException("Produtos não encontrados! Ids: " + missing);
+        }
+        return products;
+    }
 }
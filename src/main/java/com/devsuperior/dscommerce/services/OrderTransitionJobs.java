@@ -0,0 +1,138 @@
+package com.devsuperior.dscommerce.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.devsuperior.dscommerce.dtos.OrderTransitionJobDTO;
+import com.devsuperior.dscommerce.dtos.OrderTransitionJobDTO.State;
+import com.devsuperior.dscommerce.entities.OrderStatus;
+import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+// bulk transitions run in the background, one chunk per transaction through OrderService.updateStatuses,
+// so a big file neither holds row locks for its whole length nor is lost to a failure halfway through;
+// progress is kept in memory on the node that runs the job
+@Component
+public class OrderTransitionJobs implements MeterBinder, DisposableBean {
+
+    private static final int MAX_REJECTED_IDS = 1000;
+
+    private static class Job {
+
+        private final String id = UUID.randomUUID().toString();
+        private final OrderStatus status;
+        private final List<Long> orderIds;
+        private final Instant createdAt = Instant.now();
+        private final List<Long> rejectedIds = new ArrayList<>();
+        private volatile State state = State.QUEUED;
+        private volatile int processed;
+        private volatile int updated;
+        private volatile int rejected;
+        private volatile String error;
+        private volatile Instant finishedAt;
+
+        private Job(OrderStatus status, List<Long> orderIds) {
+            this.status = status;
+            this.orderIds = orderIds;
+        }
+
+        private synchronized OrderTransitionJobDTO toDTO() {
+            return new OrderTransitionJobDTO(id, status, state, orderIds.size(), processed, updated, rejected,
+                                             List.copyOf(rejectedIds), error, createdAt, finishedAt);
+        }
+    }
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${orders.transitions.chunk-size}")
+    private Integer chunkSize;
+
+    private final Cache<String, Job> jobs;
+
+    // one job at a time: concurrent jobs over the same orders would only wait on each other's row locks
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "order-transitions"));
+
+    public OrderTransitionJobs(@Value("${orders.transitions.retention-seconds}") Long retentionSeconds) {
+        this.jobs = Caffeine.newBuilder().expireAfterWrite(Duration.ofSeconds(retentionSeconds)).build();
+    }
+
+    public OrderTransitionJobDTO submit(OrderStatus status, List<Long> orderIds){
+        // ascending and without repeats, so each chunk locks a narrow range of the primary key in order
+        Job job = new Job(status, List.copyOf(new TreeSet<>(orderIds)));
+        jobs.put(job.id, job);
+        executor.execute(() -> run(job));
+        return job.toDTO();
+    }
+
+    public OrderTransitionJobDTO find(String id){
+        Job job = jobs.getIfPresent(id);
+        if (job == null) {
+            throw new ResourceNotFoundException("Transição não encontrada! Id: " + id);
+        }
+        return job.toDTO();
+    }
+
+    private void run(Job job){
+        job.state = State.RUNNING;
+        try {
+            for (int from = 0; from < job.orderIds.size(); from += chunkSize) {
+                List<Long> chunk = job.orderIds.subList(from, Math.min(from + chunkSize, job.orderIds.size()));
+                Set<Long> moved = new HashSet<>(orderService.updateStatuses(chunk, job.status));
+                synchronized (job) {
+                    for (Long id : chunk) {
+                        if (!moved.contains(id) && job.rejectedIds.size() < MAX_REJECTED_IDS) {
+                            job.rejectedIds.add(id);
+                        }
+                    }
+                    job.updated += moved.size();
+                    job.rejected += chunk.size() - moved.size();
+                    job.processed += chunk.size();
+                }
+                jobs.put(job.id, job);
+            }
+            job.state = State.DONE;
+        }
+        catch (RuntimeException e) {
+            // chunks already committed stay committed; resubmitting the same file reports the orders they moved as rejected
+            job.error = e.getMessage();
+            job.state = State.FAILED;
+        }
+        job.finishedAt = Instant.now();
+        jobs.put(job.id, job);
+        meterRegistry.counter("dscommerce.orders.transition.jobs", "state", job.state.name().toLowerCase()).increment();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry){
+        Gauge.builder("dscommerce.orders.transition.jobs.active", jobs,
+                      x -> x.asMap().values().stream().filter(job -> job.finishedAt == null).count())
+             .register(registry);
+    }
+
+    @Override
+    public void destroy(){
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,54 @@
+package com.devsuperior.dscommerce.services;
+
+import java.util.List;
+import java.util.function.LongUnaryOperator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import com.devsuperior.dscommerce.config.CacheConfig;
+
+@Service
+public class ProductCountService {
+
+    public enum Scope { NAME, CATEGORIES, CATEGORY }
+
+    public record CountKey(Scope scope, String name, List<Long> categoryIds) {
+
+        public static CountKey of(Scope scope, String name, List<Long> categoryIds) {
+            return new CountKey(scope, name.trim().toLowerCase(), categoryIds.stream().sorted().distinct().toList());
+        }
+    }
+
+    public record ProductCount(long total, boolean exact) {
+    }
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Value("${count.products.estimate-threshold}")
+    private Long estimateThreshold;
+
+    public ProductCount count(CountKey key, Pageable pageable, int contentSize, LongUnaryOperator counter){
+        // a partially filled page already tells the exact total, as in PageableExecutionUtils
+        if (pageable.isPaged() && contentSize > 0 && contentSize < pageable.getPageSize()) {
+            return new ProductCount(pageable.getOffset() + contentSize, true);
+        }
+        if (pageable.isPaged() && pageable.getOffset() == 0 && contentSize == 0) {
+            return new ProductCount(0L, true);
+        }
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCT_COUNTS);
+        return cache.get(key, () -> countUpToThreshold(counter));
+    }
+
+    private ProductCount countUpToThreshold(LongUnaryOperator counter){
+        // the counter stops after threshold + 1 rows, so past the threshold the total is only a lower bound
+        long total = counter.applyAsLong(estimateThreshold + 1);
+        return (total > estimateThreshold) ? new ProductCount(estimateThreshold, false)
+                                           : new ProductCount(total, true);
+    }
+}
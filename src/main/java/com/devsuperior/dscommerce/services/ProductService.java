@@ -1,80 +1,229 @@
 package com.devsuperior.dscommerce.services;
 
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.devsuperior.dscommerce.config.CacheConfig;
 import com.devsuperior.dscommerce.controllers.OrderController;
 import com.devsuperior.dscommerce.controllers.ProductController;
 import com.devsuperior.dscommerce.dtos.CategoryDTO;
+import com.devsuperior.dscommerce.dtos.CountedPageDTO;
+import com.devsuperior.dscommerce.dtos.CursorSliceDTO;
+import com.devsuperior.dscommerce.dtos.OrderDTO;
 import com.devsuperior.dscommerce.dtos.ProductDTO;
 import com.devsuperior.dscommerce.dtos.ProductMinDTO;
+import com.devsuperior.dscommerce.dtos.StockDTO;
 import com.devsuperior.dscommerce.entities.Category;
 import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.events.ProductChangedEvent;
+import com.devsuperior.dscommerce.projections.ProductCategoryProjection;
+import com.devsuperior.dscommerce.projections.ProductMinProjection;
 import com.devsuperior.dscommerce.projections.ProductProjection;
 import com.devsuperior.dscommerce.repositories.CategoryRepository;
 import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.search.ProductSearchIndex;
+import com.devsuperior.dscommerce.services.ProductCountService.CountKey;
+import com.devsuperior.dscommerce.services.ProductCountService.ProductCount;
+import com.devsuperior.dscommerce.services.ProductCountService.Scope;
 import com.devsuperior.dscommerce.services.exceptions.DatabaseException;
 import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
+import com.devsuperior.dscommerce.services.exceptions.UnsupportedSortException;
+import com.devsuperior.dscommerce.util.CacheGenerations;
+import com.devsuperior.dscommerce.util.KeysetCursor;
+import com.devsuperior.dscommerce.util.LinkTemplate;
 import com.devsuperior.dscommerce.util.Utills;
 
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityNotFoundException;
 
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
-
+@Timed(value = "dscommerce.service", histogram = true)
 @Service
 public class ProductService {
 
+    private static final LinkTemplate PRODUCT_BY_ID = LinkTemplate.of(ProductController.class, "findById", Long.class);
+    private static final LinkTemplate PRODUCTS = LinkTemplate.of(ProductController.class, "findAll", String.class, Pageable.class);
+    private static final List<String> CURSOR_ORDER = List.of("name", "id");
+    private static final LinkTemplate PRODUCTS_BY_CURSOR = LinkTemplate.of(ProductController.class, "findAllByCursor", String.class, String.class, Pageable.class);
+    private static final LinkTemplate PRODUCTS_WITH_CATEGORIES = LinkTemplate.of(ProductController.class, "searchProductsWithCategories", String.class, String.class, Pageable.class);
+    private static final LinkTemplate PRODUCTS_WITH_CATEGORIES_BY_CURSOR = LinkTemplate.of(ProductController.class, "searchProductsWithCategoriesByCursor", String.class, String.class, String.class, Pageable.class);
+    private static final LinkTemplate ORDER_INSERT = LinkTemplate.of(OrderController.class, "insert", String.class, OrderDTO.class);
+
     @Autowired
     private ProductRepository repository;
 
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ProductCountService countService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private CacheGenerations cacheGenerations;
+
+    // the cache keeps the product without links: they hold the host of whichever request built them;
+    // a load that read the product before an update committed is dropped again, see CacheGenerations
     @Transactional(readOnly = true)
     public ProductDTO findById(Long id){
-        Product obj = repository.findById(id).orElseThrow(() ->
-        new ResourceNotFoundException(id));
-        return new ProductDTO(obj).add(linkTo(methodOn(ProductController.class).findById(id))
-                .withSelfRel())
-                .add(linkTo(methodOn(OrderController.class).insert(null))
-                .withRel("Adicionar Produto ao Carrinho"));
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCTS);
+        ProductDTO cached = cacheGenerations.get(cache, id, ProductDTO.class, () -> {
+            Product obj = repository.findById(id).orElseThrow(() ->
+            new ResourceNotFoundException(id));
+            return new ProductDTO(obj);
+        });
+        String baseUri = LinkTemplate.currentBaseUri();
+        return new ProductDTO(cached).add(PRODUCT_BY_ID.link(baseUri, IanaLinkRelations.SELF, id))
+                .add(ORDER_INSERT.link(baseUri, "Adicionar Produto ao Carrinho"));
     }
 
     @Transactional(readOnly = true)
     public Page<ProductMinDTO> findAll(String name,Pageable pageable){
-        return repository.searchByName(name,pageable).map(x -> new ProductMinDTO(x).
-            add(linkTo(methodOn(ProductController.class).
-            findById(x.getId())).withRel("Consultar Produto por Id"))
-            .add(linkTo(methodOn(ProductController.class).findAll(name, pageable)).withSelfRel()));
+        Page<ProductMinDTO> page = (searchIndex.supports(pageable)) ? findAllFromIndex(name, pageable)
+                                                                    : findAllFromDatabase(name, pageable);
+        String baseUri = LinkTemplate.currentBaseUri();
+        Link self = PRODUCTS.link(baseUri, IanaLinkRelations.SELF, name);
+        return page.map(x -> x.add(PRODUCT_BY_ID.link(baseUri, "Consultar Produto por Id", x.getId())).add(self));
+    }
+
+    private Page<ProductMinDTO> findAllFromIndex(String name,Pageable pageable){
+        Page<Long> ids = searchIndex.search(name, Arrays.asList(), pageable);
+        List<ProductMinProjection> result = (ids.isEmpty()) ? Arrays.asList()
+                                                             : Utills.orderByIds(ids.getContent(), repository.searchProductsMin(ids.getContent()));
+        return new CountedPageDTO<>(result.stream().map(ProductMinDTO::new).toList(), pageable, ids.getTotalElements(), true);
+    }
+
+    private Page<ProductMinDTO> findAllFromDatabase(String name,Pageable pageable){
+        List<ProductMinDTO> content = repository.searchByName(name, pageable).stream().map(ProductMinDTO::new).toList();
+        ProductCount count = countService.count(CountKey.of(Scope.NAME, name, List.of()), pageable, content.size(),
+                                                limit -> repository.countProductsByName(name, limit));
+        return new CountedPageDTO<>(content, pageable, count.total(), count.exact());
+    }
+
+    @Transactional(readOnly = true)
+    public CursorSliceDTO<ProductMinDTO> findAllByCursor(String name,String after,Pageable pageable){
+        requireCursorOrder(pageable.getSort());
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        int size = pageable.getPageSize();
+        List<Product> result = repository.searchByNameAfter(name, cursor.getKey(), cursor.getId(), PageRequest.of(0, size + 1));
+
+        boolean hasNext = result.size() > size;
+        List<Product> slice = hasNext ? result.subList(0, size) : result;
+        String nextCursor = hasNext ? nextCursor(slice.get(slice.size() - 1)) : null;
+
+        String baseUri = LinkTemplate.currentBaseUri();
+        Link self = PRODUCTS_BY_CURSOR.link(baseUri, IanaLinkRelations.SELF, name, after);
+        List<ProductMinDTO> dtos = slice.stream().map(x -> new ProductMinDTO(x)
+            .add(PRODUCT_BY_ID.link(baseUri, "Consultar Produto por Id", x.getId())).add(self)).toList();
+        return new CursorSliceDTO<>(dtos, size, hasNext, nextCursor);
     }
 
-    @SuppressWarnings("unchecked")
     @Transactional(readOnly = true)
     public Page<ProductDTO> searchProductsWithCategories(String categoryIds,String name,Pageable pageable){
-        List<Long> ids = (!categoryIds.equals("0")) ? Arrays.stream(categoryIds.split(",")).map(Long::parseLong).toList()
-                                                    : Arrays.asList();
-        Page<ProductProjection> page = repository.searchProducts(ids, name.trim(), pageable);
+        List<Long> ids = parseCategoryIds(categoryIds);
+        Page<ProductDTO> page = (searchIndex.supports(pageable)) ? searchProductsFromIndex(ids, name.trim(), pageable)
+                                                                 : searchProductsFromDatabase(ids, name.trim(), pageable);
+        String baseUri = LinkTemplate.currentBaseUri();
+        Link self = PRODUCTS_WITH_CATEGORIES.link(baseUri, IanaLinkRelations.SELF, categoryIds, name);
+        return page.map(x -> x.add(PRODUCT_BY_ID.link(baseUri, "Consultar Produto por Id", x.getId())).add(self));
+    }
+
+    private Page<ProductDTO> searchProductsFromIndex(List<Long> categoryIds,String name,Pageable pageable){
+        Page<Long> ids = searchIndex.search(name, categoryIds, pageable);
+        return new CountedPageDTO<>(loadProductsWithCategories(ids.getContent()), pageable, ids.getTotalElements(), true);
+    }
 
-        List<Long> productIds = page.map(ProductProjection::getId).toList();
-        List<Product> entities = repository.searchProductsWithCategories(productIds);
-        entities = (List<Product>) Utills.replace(page.getContent(), entities);
+    private Page<ProductDTO> searchProductsFromDatabase(List<Long> categoryIds,String name,Pageable pageable){
+        List<ProductDTO> content = List.copyOf(groupByProduct(repository.searchProductPageWithCategories(categoryIds, name, pageable)).values());
+        ProductCount count = countService.count(CountKey.of(Scope.CATEGORIES, name, categoryIds), pageable, content.size(),
+                                                limit -> repository.countProducts(categoryIds, name, limit));
+        return new CountedPageDTO<>(content, pageable, count.total(), count.exact());
+    }
 
-        List<ProductDTO> dtos = entities.stream().map(x -> new ProductDTO(x).
-                add(linkTo(methodOn(ProductController.class).
-                findById(x.getId())).withRel("Consultar Produto por Id"))
-                .add(linkTo(methodOn(ProductController.class).searchProductsWithCategories(categoryIds, name, pageable))
-                .withSelfRel())).toList();
-        return new PageImpl<>(dtos,page.getPageable(),page.getTotalElements());
+    private List<ProductDTO> loadProductsWithCategories(List<Long> productIds){
+        if (productIds.isEmpty()) {
+            return Arrays.asList();
+        }
+        Map<Long,ProductDTO> products = groupByProduct(repository.searchProductRowsWithCategories(productIds));
+        return productIds.stream().map(products::get).filter(Objects::nonNull).toList();
+    }
+
+    private Map<Long,ProductDTO> groupByProduct(List<? extends ProductCategoryProjection> rows){
+        Map<Long,ProductDTO> products = new LinkedHashMap<>();
+        for (ProductCategoryProjection row : rows){
+            products.computeIfAbsent(row.getId(), id -> new ProductDTO(row))
+                    .getCategories().add(new CategoryDTO(row.getCategoryId(), row.getCategoryName()));
+        }
+        return products;
+    }
+
+    @Transactional(readOnly = true)
+    public CursorSliceDTO<ProductDTO> searchProductsWithCategoriesByCursor(String categoryIds,String name,String after,Pageable pageable){
+        requireCursorOrder(pageable.getSort());
+        List<Long> ids = parseCategoryIds(categoryIds);
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        int size = pageable.getPageSize();
+        List<ProductProjection> result = repository.searchProductsAfter(ids, name.trim(), cursor.getKey(), cursor.getId(), PageRequest.of(0, size + 1));
+
+        boolean hasNext = result.size() > size;
+        List<ProductProjection> slice = hasNext ? result.subList(0, size) : result;
+        String nextCursor = hasNext ? nextCursor(slice.get(slice.size() - 1)) : null;
+
+        List<Long> productIds = slice.stream().map(ProductProjection::getId).toList();
+        String baseUri = LinkTemplate.currentBaseUri();
+        Link self = PRODUCTS_WITH_CATEGORIES_BY_CURSOR.link(baseUri, IanaLinkRelations.SELF, categoryIds, name, after);
+        List<ProductDTO> dtos = loadProductsWithCategories(productIds).stream()
+                .map(x -> x.add(PRODUCT_BY_ID.link(baseUri, "Consultar Produto por Id", x.getId())).add(self)).toList();
+        return new CursorSliceDTO<>(dtos, size, hasNext, nextCursor);
+    }
+
+    private List<Long> parseCategoryIds(String categoryIds){
+        return (!categoryIds.equals("0")) ? Arrays.stream(categoryIds.split(",")).map(Long::parseLong).toList()
+                                          : Arrays.asList();
+    }
+
+    // the cursor holds the last name and id, so a slice can only continue in that order; any other sort is refused, not ignored
+    private void requireCursorOrder(Sort sort){
+        int position = 0;
+        for (Sort.Order order : sort) {
+            if (position >= CURSOR_ORDER.size() || !order.getProperty().equals(CURSOR_ORDER.get(position)) || order.isDescending()) {
+                throw new UnsupportedSortException("Paginação por cursor só aceita sort=name,asc e sort=id,asc");
+            }
+            position++;
+        }
+    }
+
+    private String nextCursor(Product last){
+        return new KeysetCursor(last.getName(), last.getId()).encode();
+    }
+
+    private String nextCursor(ProductProjection last){
+        return new KeysetCursor(last.getName(), last.getId()).encode();
     }
 
     @Transactional
@@ -89,6 +238,7 @@ public class ProductService {
             entity.getCategories().add(cat);
         }
         entity = repository.save(entity);
+        eventPublisher.publishEvent(new ProductChangedEvent(entity.getId()));
         return new ProductDTO(entity);
     }
 
@@ -98,6 +248,7 @@ public class ProductService {
             Product entity = repository.getReferenceById(id);
             updateData(entity,obj);
             repository.save(entity);
+            eventPublisher.publishEvent(new ProductChangedEvent(id));
             return new ProductDTO(entity);
         }
         catch(EntityNotFoundException e){
@@ -119,13 +270,28 @@ public class ProductService {
         }
     }
 
+    @Transactional(readOnly = true)
+    public StockDTO findStock(Long id){
+        Integer stock = repository.searchStock(id).orElseThrow(() -> new ResourceNotFoundException(id));
+        return new StockDTO(id, stock);
+    }
+
+    @Transactional
+    public StockDTO updateStock(Long id,StockDTO dto){
+        if (!repository.updateStock(id, dto.getStock())) {
+            throw new ResourceNotFoundException(id);
+        }
+        return new StockDTO(id, dto.getStock());
+    }
+
     @Transactional(propagation = Propagation.SUPPORTS)
     public void delete(Long id) {
 	    if (!repository.existsById(id)) {
 		    throw new ResourceNotFoundException(id);
 	    }
 	    try {
-        	repository.deleteById(id);    		
+        	repository.deleteById(id);
+        	eventPublisher.publishEvent(new ProductChangedEvent(id));
 	    }
     	catch (DataIntegrityViolationException e) {
         	throw new DatabaseException("Falha de integridade referencial");
@@ -1,12 +1,20 @@
 package com.devsuperior.dscommerce.services;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -14,23 +22,28 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.devsuperior.dscommerce.config.CacheConfig;
 import com.devsuperior.dscommerce.dtos.RoleDTO;
 import com.devsuperior.dscommerce.dtos.UserDTO;
 import com.devsuperior.dscommerce.dtos.UserInsertDTO;
 import com.devsuperior.dscommerce.dtos.UserUpdateDTO;
 import com.devsuperior.dscommerce.entities.Role;
 import com.devsuperior.dscommerce.entities.User;
+import com.devsuperior.dscommerce.events.UserChangedEvent;
 import com.devsuperior.dscommerce.projections.UserDetailsProjection;
 import com.devsuperior.dscommerce.repositories.RoleRepository;
 import com.devsuperior.dscommerce.repositories.UserRepository;
 import com.devsuperior.dscommerce.services.exceptions.DatabaseException;
 import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
+import com.devsuperior.dscommerce.util.CacheGenerations;
 import com.devsuperior.dscommerce.util.CustomUserUtils;
 
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityNotFoundException;
 
+@Timed(value = "dscommerce.service", histogram = true)
 @Service
-public class UserService implements UserDetailsService{
+public class UserService implements UserDetailsService, UserDetailsPasswordService{
 
     @Autowired
     private UserRepository repository;
@@ -47,25 +60,77 @@ public class UserService implements UserDetailsService{
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private CacheGenerations cacheGenerations;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // immutable, and not a CredentialsContainer, so nothing can erase the password of a cached entry
+    public record UserCredentials(String username, String password, List<GrantedAuthority> authorities) implements UserDetails {
+
+        public UserCredentials {
+            authorities = List.copyOf(authorities);
+        }
+
+        @Override
+        public String getUsername() {
+            return username;
+        }
+
+        @Override
+        public String getPassword() {
+            return password;
+        }
+
+        @Override
+        public Collection<? extends GrantedAuthority> getAuthorities() {
+            return authorities;
+        }
+    }
+
+    // every password grant lands here; UserChangedEvent evicts the entry when the user, its roles or its password change
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        Cache cache = cacheManager.getCache(CacheConfig.USER_DETAILS);
+        // a load that read the old hash before a password reset committed must not outlive the reset's eviction
+        return cacheGenerations.get(cache, username, UserCredentials.class, () -> searchCredentials(username));
+    }
+
+    private UserCredentials searchCredentials(String username) {
         List<UserDetailsProjection> list = repository.searchUserAndRolesByEmail(username);
         if (list.isEmpty()) {
             throw new UsernameNotFoundException("Email Not Found");
         }
-        User user = new User();
-        user.setEmail(list.get(0).getUsername());
-        user.setPassword(list.get(0).getPassword());
+        List<GrantedAuthority> authorities = new ArrayList<>(list.size());
         for (UserDetailsProjection x : list){
-            user.addRole(new Role(x.getRoleId(), x.getAuthority()));
+            authorities.add(new SimpleGrantedAuthority(x.getAuthority()));
         }
-        return user;
+        return new UserCredentials(list.get(0).getUsername(), list.get(0).getPassword(), authorities);
+    }
+
+    // called after a successful login whose stored hash is outdated; only the hash column changes
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        repository.updatePasswordByEmail(user.getUsername(), newPassword);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getUsername(), false));
+        return org.springframework.security.core.userdetails.User.withUserDetails(user).password(newPassword).build();
     }
 
     protected User authenticated(){
+        return repository.findById(authenticatedId()).orElseThrow(() ->
+            new UsernameNotFoundException("Email Not Found"));
+    }
+
+    protected Long authenticatedId(){
         try{
             String username = customUserUtils.getLoggedUsername();
-            return repository.findByEmail(username);
+            Cache cache = cacheManager.getCache(CacheConfig.AUTHENTICATED_USERS);
+            return cache.get(username, () -> repository.findIdByEmail(username).orElseThrow());
         }
         catch(Exception e){
             throw new UsernameNotFoundException("Email Not Found");
@@ -111,8 +176,10 @@ public class UserService implements UserDetailsService{
         try{
             User entity = repository.getReferenceById(id);
             authService.validateSelfOrAdmin(entity.getId());
+            String username = entity.getEmail();
             updateData(entity,dto);
             entity = repository.save(entity);
+            eventPublisher.publishEvent(new UserChangedEvent(username));
             return new UserDTO(entity);
         }
         catch (EntityNotFoundException e){
@@ -136,11 +203,11 @@ public class UserService implements UserDetailsService{
 
     @Transactional(propagation = Propagation.SUPPORTS)
     public void deleteById(Long id){
-        if (!repository.existsById(id)) {
-            throw new ResourceNotFoundException(id);
-        }
+        User user = repository.findById(id).orElseThrow(() ->
+            new ResourceNotFoundException(id));
         try{
             repository.deleteById(id);
+            eventPublisher.publishEvent(new UserChangedEvent(user.getEmail()));
         }
         catch (DataIntegrityViolationException e){
             throw new DatabaseException("Falha de Integridade Referencial");
@@ -1,9 +0,0 @@
-package com.devsuperior.dscommerce.services.exceptions;
-
-public class EmailException extends RuntimeException{
-
-    public EmailException(String msg){
-        super(msg);
-    }
-
-}
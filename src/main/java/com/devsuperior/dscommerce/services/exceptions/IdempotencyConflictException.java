@@ -0,0 +1,8 @@
+package com.devsuperior.dscommerce.services.exceptions;
+
+public class IdempotencyConflictException extends RuntimeException{
+
+    public IdempotencyConflictException(String msg){
+        super(msg);
+    }
+}
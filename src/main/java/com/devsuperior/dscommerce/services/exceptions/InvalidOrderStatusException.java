@@ -0,0 +1,8 @@
+package com.devsuperior.dscommerce.services.exceptions;
+
+public class InvalidOrderStatusException extends RuntimeException{
+
+    public InvalidOrderStatusException(String msg){
+        super(msg);
+    }
+}
@@ -0,0 +1,8 @@
+package com.devsuperior.dscommerce.services.exceptions;
+
+public class UnsupportedSortException extends RuntimeException{
+
+    public UnsupportedSortException(String msg){
+        super(msg);
+    }
+}
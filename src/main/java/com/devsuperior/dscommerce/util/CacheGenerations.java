@@ -0,0 +1,45 @@
+package com.devsuperior.dscommerce.util;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+import org.springframework.cache.Cache;
+import org.springframework.stereotype.Component;
+
+// counts evictions per cache key, so a load that read the database before an eviction can take its stale put back
+@Component
+public class CacheGenerations {
+
+    // keys share a counter per stripe: a collision only costs an extra eviction
+    private static final int STRIPES = 1024;
+
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+    // the bump must land before the eviction, see get
+    public void evict(Cache cache, Object key){
+        generations.incrementAndGet(stripe(cache, key));
+        cache.evictIfPresent(key);
+    }
+
+    public <T> T get(Cache cache, Object key, Class<T> type, Supplier<T> loader){
+        T value = cache.get(key, type);
+        if (value != null) {
+            return value;
+        }
+        int stripe = stripe(cache, key);
+        long generation = generations.get(stripe);
+        value = loader.get();
+        // putIfAbsent is immediate, a plain put would be deferred to commit and land after the check below
+        cache.putIfAbsent(key, value);
+        if (generations.get(stripe) != generation) {
+            // an eviction ran while loading and may have missed this put
+            cache.evictIfPresent(key);
+        }
+        return value;
+    }
+
+    private int stripe(Cache cache, Object key){
+        return Math.floorMod(Objects.hash(cache.getName(), key), STRIPES);
+    }
+}
@@ -13,4 +13,11 @@ public class CustomUserUtils {
         Jwt jwtPrincipal = (Jwt) authentication.getPrincipal();
         return jwtPrincipal.getClaim("username");
     }
+
+    // authorities come from the token's "authorities" claim, see ResourceServerConfig
+    public boolean hasAuthority(String authority){
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getAuthorities().stream()
+                                            .anyMatch(x -> x.getAuthority().equals(authority));
+    }
 }
@@ -0,0 +1,46 @@
+package com.devsuperior.dscommerce.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.devsuperior.dscommerce.services.exceptions.InvalidCursorException;
+
+public class KeysetCursor {
+
+    public static final KeysetCursor FIRST = new KeysetCursor("", 0L);
+
+    private final String key;
+    private final Long id;
+
+    public KeysetCursor(String key, Long id) {
+        this.key = key;
+        this.id = id;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String encode(){
+        String raw = id + ":" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String token){
+        if (token == null || token.isBlank()) {
+            return FIRST;
+        }
+        try{
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new KeysetCursor(raw.substring(separator + 1), Long.parseLong(raw.substring(0, separator)));
+        }
+        catch(IllegalArgumentException | IndexOutOfBoundsException e){
+            throw new InvalidCursorException("Cursor inválido");
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.devsuperior.dscommerce.util;
+
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+
+// same hrefs as linkTo(methodOn(...)), but the mapping is resolved once and expanded by concatenation;
+// arguments are the method's @PathVariable and @RequestParam values in declaration order
+public class LinkTemplate {
+
+    private static final Pattern VARIABLE = Pattern.compile("\\{([^}:]+)(:[^}]*)?}");
+
+    private final String[] literals;
+    private final int[] pathArguments;
+    private final String[] queryNames;
+    private final int[] queryArguments;
+    private final int arity;
+
+    private LinkTemplate(String[] literals, int[] pathArguments, String[] queryNames, int[] queryArguments, int arity) {
+        this.literals = literals;
+        this.pathArguments = pathArguments;
+        this.queryNames = queryNames;
+        this.queryArguments = queryArguments;
+        this.arity = arity;
+    }
+
+    public static LinkTemplate of(Class<?> controller, String methodName, Class<?>... parameterTypes) {
+        Method method = ReflectionUtils.findMethod(controller, methodName, parameterTypes);
+        if (method == null) {
+            throw new IllegalArgumentException("Mapeamento não encontrado: " + controller.getSimpleName() + "." + methodName);
+        }
+
+        List<String> pathNames = new ArrayList<>();
+        List<String> queryNames = new ArrayList<>();
+        List<Integer> queryArguments = new ArrayList<>();
+        int arity = 0;
+        for (Parameter parameter : method.getParameters()) {
+            PathVariable pathVariable = AnnotatedElementUtils.findMergedAnnotation(parameter, PathVariable.class);
+            RequestParam requestParam = AnnotatedElementUtils.findMergedAnnotation(parameter, RequestParam.class);
+            if (pathVariable != null) {
+                pathNames.add(pathVariable.name().isEmpty() ? parameter.getName() : pathVariable.name());
+            }
+            else if (requestParam != null) {
+                pathNames.add(null);
+                queryNames.add(requestParam.name().isEmpty() ? parameter.getName() : requestParam.name());
+                queryArguments.add(arity);
+            }
+            else {
+                continue;
+            }
+            arity++;
+        }
+
+        String path = mappedPath(controller) + mappedPath(method);
+        List<String> literals = new ArrayList<>();
+        List<Integer> pathArguments = new ArrayList<>();
+        Matcher matcher = VARIABLE.matcher(path);
+        int start = 0;
+        while (matcher.find()) {
+            int index = pathNames.indexOf(matcher.group(1));
+            if (index < 0) {
+                throw new IllegalArgumentException("Variável sem @PathVariable: " + matcher.group(1));
+            }
+            literals.add(path.substring(start, matcher.start()));
+            pathArguments.add(index);
+            start = matcher.end();
+        }
+        literals.add(path.substring(start));
+
+        return new LinkTemplate(literals.toArray(String[]::new),
+                                pathArguments.stream().mapToInt(Integer::intValue).toArray(),
+                                queryNames.toArray(String[]::new),
+                                queryArguments.stream().mapToInt(Integer::intValue).toArray(),
+                                arity);
+    }
+
+    // same base linkTo uses: the current servlet mapping, or a relative href outside a request
+    public static String currentBaseUri() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes)) {
+            return "";
+        }
+        return ServletUriComponentsBuilder.fromCurrentServletMapping().build().toUriString();
+    }
+
+    public Link link(String baseUri, String rel, Object... args) {
+        return Link.of(expand(baseUri, args), rel);
+    }
+
+    public Link link(String baseUri, LinkRelation rel, Object... args) {
+        return Link.of(expand(baseUri, args), rel);
+    }
+
+    public String expand(String baseUri, Object... args) {
+        if (args.length != arity) {
+            throw new IllegalArgumentException("Esperados " + arity + " argumentos, recebidos " + args.length);
+        }
+        StringBuilder sb = new StringBuilder(baseUri.length() + 64).append(baseUri);
+        for (int i = 0; i < pathArguments.length; i++) {
+            sb.append(literals[i]).append(UriUtils.encodePathSegment(String.valueOf(args[pathArguments[i]]), StandardCharsets.UTF_8));
+        }
+        sb.append(literals[literals.length - 1]);
+
+        char separator = '?';
+        for (int i = 0; i < queryNames.length; i++) {
+            Object value = args[queryArguments[i]];
+            if (value != null) {
+                sb.append(separator).append(queryNames[i]).append('=')
+                  .append(UriUtils.encode(String.valueOf(value), StandardCharsets.UTF_8));
+                separator = '&';
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String mappedPath(AnnotatedElement element) {
+        RequestMapping mapping = AnnotatedElementUtils.findMergedAnnotation(element, RequestMapping.class);
+        if (mapping == null || mapping.path().length == 0) {
+            return "";
+        }
+        String path = mapping.path()[0];
+        return (path.isEmpty() || path.startsWith("/")) ? path : "/" + path;
+    }
+}
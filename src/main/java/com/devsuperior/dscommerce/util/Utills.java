@@ -23,4 +23,21 @@ public class Utills {
         return result;
     }
 
+    public static <ID,T extends IdProjection<ID>> List<T> orderByIds(List<ID> ids,List<T> unordered){
+
+        Map<ID,T> map = new HashMap<>();
+        for (T obj : unordered){
+            map.put(obj.getId(), obj);
+        }
+
+        List<T> result = new ArrayList<>(ids.size());
+        for (ID id : ids){
+            T obj = map.get(id);
+            if (obj != null) {
+                result.add(obj);
+            }
+        }
+        return result;
+    }
+
 }
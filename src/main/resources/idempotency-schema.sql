@@ -0,0 +1,10 @@
+CREATE TABLE idempotency_keys (
+    idempotency_key VARCHAR(64) NOT NULL,
+    fingerprint VARCHAR(64) NOT NULL,
+    response_status INT,
+    response_location VARCHAR(1000),
+    response_body TEXT,
+    expires_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (idempotency_key)
+);
+CREATE INDEX idx_idempotency_keys_expires_at ON idempotency_keys (expires_at);
@@ -0,0 +1,120 @@
+package com.devsuperior.dscommerce.config.authorization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CaffeineOAuth2AuthorizationServiceTests {
+
+    private AtomicLong nanos;
+    private SimpleMeterRegistry meterRegistry;
+    private CaffeineOAuth2AuthorizationService service;
+    private RegisteredClient client;
+
+    @BeforeEach
+    public void setup(){
+        nanos = new AtomicLong();
+        meterRegistry = new SimpleMeterRegistry();
+        service = new CaffeineOAuth2AuthorizationService(2, Duration.ofSeconds(60), meterRegistry, nanos::get, Runnable::run);
+        client = RegisteredClient.withId("myclientid")
+                    .clientId("myclientid")
+                    .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                    .authorizationGrantType(new AuthorizationGrantType("password"))
+                    .build();
+    }
+
+    @Test
+    public void findByTokenShouldReturnAuthorizationWhenAccessTokenWasSaved(){
+        OAuth2Authorization authorization = authorization("1", "token-1", Duration.ofMinutes(5));
+        service.save(authorization);
+
+        assertThat(service.findById("1")).isSameAs(authorization);
+        assertThat(service.findByToken("token-1", OAuth2TokenType.ACCESS_TOKEN)).isSameAs(authorization);
+        assertThat(service.findByToken("token-1", null)).isSameAs(authorization);
+        assertThat(service.findByToken("token-1", OAuth2TokenType.REFRESH_TOKEN)).isNull();
+    }
+
+    @Test
+    public void removeShouldDropAuthorizationAndItsTokens(){
+        OAuth2Authorization authorization = authorization("1", "token-1", Duration.ofMinutes(5));
+        service.save(authorization);
+
+        service.remove(authorization);
+
+        assertThat(service.findByToken("token-1", null)).isNull();
+        assertThat(service.indexedTokens()).isZero();
+    }
+
+    @Test
+    public void removeByPrincipalNameShouldDropOnlyThatUsersAuthorizations(){
+        service.save(authorization("1", "token-1", Duration.ofMinutes(5)));
+        service.save(authorization("2", "token-2", Duration.ofMinutes(5), "alex@gmail.com"));
+
+        assertThat(service.removeByPrincipalName("maria@gmail.com")).isEqualTo(1);
+
+        assertThat(service.findByToken("token-1", null)).isNull();
+        assertThat(service.findByToken("token-2", null).getId()).isEqualTo("2");
+        assertThat(service.indexedTokens()).isEqualTo(1);
+    }
+
+    @Test
+    public void saveShouldUnindexReplacedTokens(){
+        service.save(authorization("1", "token-1", Duration.ofMinutes(5)));
+        service.save(authorization("1", "token-2", Duration.ofMinutes(5)));
+
+        assertThat(service.findByToken("token-1", null)).isNull();
+        assertThat(service.findByToken("token-2", null).getId()).isEqualTo("1");
+        assertThat(service.indexedTokens()).isEqualTo(1);
+    }
+
+    @Test
+    public void authorizationShouldExpireWithItsAccessToken(){
+        service.save(authorization("1", "token-1", Duration.ofMinutes(5)));
+
+        nanos.addAndGet(Duration.ofMinutes(6).toNanos());
+
+        assertThat(service.findByToken("token-1", null)).isNull();
+        assertThat(service.size()).isZero();
+        assertThat(service.indexedTokens()).isZero();
+        assertThat(meterRegistry.get("dscommerce.oauth2.authorizations.evictions").functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void sizeShouldNeverPassMaxSize(){
+        for (int i = 0; i < 10; i++) {
+            service.save(authorization(String.valueOf(i), "token-" + i, Duration.ofMinutes(5)));
+        }
+
+        assertThat(service.size()).isEqualTo(2);
+        assertThat(service.indexedTokens()).isEqualTo(2);
+        assertThat(meterRegistry.get("dscommerce.oauth2.authorizations").gauge().value()).isEqualTo(2.0);
+    }
+
+    private OAuth2Authorization authorization(String id, String tokenValue, Duration ttl){
+        return authorization(id, tokenValue, ttl, "maria@gmail.com");
+    }
+
+    private OAuth2Authorization authorization(String id, String tokenValue, Duration ttl, String principalName){
+        Instant now = Instant.now();
+        OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, tokenValue, now, now.plus(ttl));
+        return OAuth2Authorization.withRegisteredClient(client)
+                .id(id)
+                .principalName(principalName)
+                .authorizationGrantType(new AuthorizationGrantType("password"))
+                .accessToken(accessToken)
+                .build();
+    }
+}
@@ -0,0 +1,36 @@
+package com.devsuperior.dscommerce.config.customgrant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+
+public class TokenErrorResponseHandlerTests {
+
+    private final TokenErrorResponseHandler handler = new TokenErrorResponseHandler();
+
+    @Test
+    public void onAuthenticationFailureShouldReturn503WithRetryAfterWhenHashingIsUnavailable() throws Exception{
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        handler.onAuthenticationFailure(new MockHttpServletRequest(), response,
+            new OAuth2AuthenticationException(new OAuth2Error(CustomPasswordAuthenticationProvider.TEMPORARILY_UNAVAILABLE)));
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(response.getContentAsString()).contains("\"error\":\"temporarily_unavailable\"");
+    }
+
+    @Test
+    public void onAuthenticationFailureShouldReturn400WhenCredentialsAreInvalid() throws Exception{
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        handler.onAuthenticationFailure(new MockHttpServletRequest(), response, new OAuth2AuthenticationException("Invalid credentials"));
+
+        assertThat(response.getStatus()).isEqualTo(400);
+        assertThat(response.getHeader("Retry-After")).isNull();
+    }
+}
@@ -0,0 +1,85 @@
+package com.devsuperior.dscommerce.config.hashing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.devsuperior.dscommerce.services.exceptions.ServiceUnavailableException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class BulkheadPasswordEncoderTests {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CountDownLatch release;
+    private CountDownLatch started;
+    private BulkheadPasswordEncoder encoder;
+
+    @BeforeEach
+    public void setup(){
+        meterRegistry = new SimpleMeterRegistry();
+        release = new CountDownLatch(0);
+        started = new CountDownLatch(1);
+        PasswordEncoder slow = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "{hash}" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encodedPassword.equals("{hash}" + rawPassword);
+            }
+        };
+        encoder = new BulkheadPasswordEncoder(slow, 1, 1, meterRegistry);
+    }
+
+    @AfterEach
+    public void tearDown(){
+        release.countDown();
+        encoder.shutdown();
+    }
+
+    @Test
+    public void encodeAndMatchesShouldRunOnPoolAndRecordTimers(){
+        String hash = encoder.encode("123456");
+
+        assertThat(encoder.matches("123456", hash)).isTrue();
+        assertThat(encoder.matches("654321", hash)).isFalse();
+        assertThat(meterRegistry.get("dscommerce.password.hashing.duration").tag("operation", "matches").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("dscommerce.password.hashing.wait").tag("operation", "encode").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void encodeShouldThrowServiceUnavailableExceptionWhenPoolAndQueueAreFull() throws Exception{
+        release = new CountDownLatch(1);
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("a"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("b"));
+        while (meterRegistry.get("executor.queued").gauge().value() < 1) {
+            Thread.sleep(5);
+        }
+
+        assertThatThrownBy(() -> encoder.encode("c")).isInstanceOf(ServiceUnavailableException.class);
+        assertThat(meterRegistry.get("dscommerce.password.hashing.rejected").counter().count()).isEqualTo(1.0);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("{hash}a");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("{hash}b");
+    }
+}
@@ -0,0 +1,60 @@
+package com.devsuperior.dscommerce.config.hashing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+public class PasswordHashingTests {
+
+    private static final String LEGACY_HASH = "$2a$10$g2gG9Au8sQ.pup50FxDQwuAA0Dx0Hsu3fMRSfTmV2Q0D0j37NzCMy";
+
+    @Test
+    public void encoderShouldMatchLegacyHashAndFlagItForUpgrade(){
+        PasswordEncoder encoder = PasswordHashing.encoder(10);
+
+        assertThat(encoder.matches("123456", LEGACY_HASH)).isTrue();
+        assertThat(encoder.matches("654321", LEGACY_HASH)).isFalse();
+        assertThat(encoder.upgradeEncoding(LEGACY_HASH)).isTrue();
+    }
+
+    @Test
+    public void encoderShouldPrefixNewHashesAndFlagOnlyLowerCosts(){
+        String current = PasswordHashing.encoder(11).encode("123456");
+        String weaker = PasswordHashing.encoder(10).encode("123456");
+
+        assertThat(current).startsWith("{bcrypt}$2a$11$");
+        assertThat(PasswordHashing.encoder(11).matches("123456", current)).isTrue();
+        assertThat(PasswordHashing.encoder(11).upgradeEncoding(current)).isFalse();
+        assertThat(PasswordHashing.encoder(11).upgradeEncoding(weaker)).isTrue();
+    }
+
+    @Test
+    public void clientSecretEncoderShouldMatchOnlyItsOwnHashes(){
+        PasswordEncoder encoder = PasswordHashing.clientSecretEncoder();
+        String hash = encoder.encode("myclientsecret");
+
+        assertThat(hash).startsWith("{sha256}").hasSize("{sha256}".length() + 64);
+        assertThat(encoder.matches("myclientsecret", hash)).isTrue();
+        assertThat(encoder.matches("otherclientsecret", hash)).isFalse();
+        assertThat(encoder.matches("myclientsecret", "{sha256}not-hex")).isFalse();
+        assertThat(encoder.matches("123456", LEGACY_HASH)).isFalse();
+    }
+
+    @Test
+    public void strengthForShouldDoubleCostPerRoundAndStayWithinBounds(){
+        long tenMillis = Duration.ofMillis(10).toNanos();
+
+        assertThat(PasswordHashing.strengthFor(tenMillis, Duration.ofMillis(5))).isEqualTo(10);
+        assertThat(PasswordHashing.strengthFor(tenMillis, Duration.ofMillis(39))).isEqualTo(11);
+        assertThat(PasswordHashing.strengthFor(tenMillis, Duration.ofMillis(40))).isEqualTo(12);
+        assertThat(PasswordHashing.strengthFor(tenMillis, Duration.ofSeconds(60))).isEqualTo(16);
+    }
+
+    @Test
+    public void calibrateBCryptStrengthShouldReturnMinimumForTinyTarget(){
+        assertThat(PasswordHashing.calibrateBCryptStrength(Duration.ofNanos(1))).isEqualTo(PasswordHashing.MIN_BCRYPT_STRENGTH);
+    }
+}
@@ -0,0 +1,120 @@
+package com.devsuperior.dscommerce.config.idempotency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.devsuperior.dscommerce.config.idempotency.IdempotencyStore.StoredResponse;
+import com.devsuperior.dscommerce.services.exceptions.IdempotencyConflictException;
+import com.devsuperior.dscommerce.services.exceptions.IdempotencyKeyReusedException;
+import com.devsuperior.dscommerce.services.exceptions.ServiceUnavailableException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CaffeineIdempotencyStoreTests {
+
+    private static final Duration NO_WAIT = Duration.ZERO;
+    private static final Duration WAIT = Duration.ofSeconds(5);
+
+    private AtomicLong nanos;
+    private CaffeineIdempotencyStore store;
+    private StoredResponse created;
+
+    @BeforeEach
+    public void setup(){
+        nanos = new AtomicLong();
+        store = new CaffeineIdempotencyStore(100, Duration.ofMinutes(1), new SimpleMeterRegistry(), nanos::get);
+        created = new StoredResponse(201, "http://localhost/orders/4", "{\"id\":4}");
+    }
+
+    @Test
+    public void claimShouldReturnStoredResponseOnceFirstRequestCompleted(){
+        assertThat(store.claim("key", "body", NO_WAIT)).isNull();
+        store.complete("key", "body", created);
+
+        assertThat(store.claim("key", "body", NO_WAIT)).isEqualTo(created);
+    }
+
+    @Test
+    public void claimShouldThrowIdempotencyKeyReusedExceptionWhenBodyDiffers(){
+        store.claim("key", "body", NO_WAIT);
+        store.complete("key", "body", created);
+
+        assertThatThrownBy(() -> store.claim("key", "other body", NO_WAIT)).isInstanceOf(IdempotencyKeyReusedException.class);
+    }
+
+    @Test
+    public void claimShouldThrowIdempotencyConflictExceptionWhenFirstRequestIsStillRunningAfterWait(){
+        store.claim("key", "body", NO_WAIT);
+
+        assertThatThrownBy(() -> store.claim("key", "body", Duration.ofMillis(20))).isInstanceOf(IdempotencyConflictException.class);
+    }
+
+    @Test
+    public void claimShouldWaitForConcurrentFirstRequestAndReturnItsResponse() throws Exception{
+        store.claim("key", "body", NO_WAIT);
+
+        CompletableFuture<StoredResponse> duplicate = CompletableFuture.supplyAsync(() -> store.claim("key", "body", WAIT));
+        Thread.sleep(50);
+        assertThat(duplicate).isNotDone();
+        store.complete("key", "body", created);
+
+        assertThat(duplicate.get(5, TimeUnit.SECONDS)).isEqualTo(created);
+    }
+
+    @Test
+    public void claimShouldHandKeyToWaitingDuplicateWhenFirstRequestFails() throws Exception{
+        store.claim("key", "body", NO_WAIT);
+
+        CompletableFuture<StoredResponse> duplicate = CompletableFuture.supplyAsync(() -> store.claim("key", "body", WAIT));
+        Thread.sleep(50);
+        store.release("key");
+
+        assertThat(duplicate.get(5, TimeUnit.SECONDS)).isNull();
+        assertThatThrownBy(() -> store.claim("key", "body", NO_WAIT)).isInstanceOf(IdempotencyConflictException.class);
+    }
+
+    @Test
+    public void claimShouldRunAgainOnceTtlExpired(){
+        store.claim("key", "body", NO_WAIT);
+        store.complete("key", "body", created);
+
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+
+        assertThat(store.claim("key", "body", NO_WAIT)).isNull();
+    }
+
+    @Test
+    public void claimShouldKeepReplayingKeysAndRejectNewOnesWhenStoreIsFull(){
+        store = new CaffeineIdempotencyStore(3, Duration.ofMinutes(1), new SimpleMeterRegistry(), nanos::get);
+        for (String key : new String[] { "a", "b", "c" }) {
+            store.claim(key, "body", NO_WAIT);
+            store.complete(key, "body", created);
+        }
+
+        assertThatThrownBy(() -> store.claim("d", "body", NO_WAIT)).isInstanceOf(ServiceUnavailableException.class);
+        assertThat(store.claim("a", "body", NO_WAIT)).isEqualTo(created);
+        assertThat(store.claim("c", "body", NO_WAIT)).isEqualTo(created);
+
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+
+        assertThat(store.claim("d", "body", NO_WAIT)).isNull();
+    }
+
+    @Test
+    public void completeShouldStoreResponseWhenClaimExpiredMeanwhile(){
+        store.claim("key", "body", NO_WAIT);
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+
+        store.complete("key", "body", created);
+
+        assertThat(store.claim("key", "body", NO_WAIT)).isEqualTo(created);
+    }
+}
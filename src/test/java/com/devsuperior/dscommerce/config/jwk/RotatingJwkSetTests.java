@@ -0,0 +1,190 @@
+package com.devsuperior.dscommerce.config.jwk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.KeyType;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+
+public class RotatingJwkSetTests {
+
+    private static final Duration ROTATION = Duration.ofDays(30);
+    private static final Duration ACTIVATION = Duration.ofMinutes(1);
+    private static final Duration TOKEN_TTL = Duration.ofDays(1);
+
+    @TempDir
+    private Path directory;
+
+    private MutableClock clock;
+
+    @BeforeEach
+    public void setup(){
+        clock = new MutableClock(Instant.parse("2024-06-01T00:00:00Z"));
+    }
+
+    @Test
+    public void firstUseShouldCreateSigningKeyAndPublishOnlyItsPublicPart() throws Exception{
+        RotatingJwkSet sut = newSet(null);
+
+        JWK signing = sut.activeKey();
+        List<JWK> published = select(sut.verificationKeys());
+
+        assertThat(signing.isPrivate()).isTrue();
+        assertThat(published).hasSize(1);
+        assertThat(published.get(0).getKeyID()).isEqualTo(signing.getKeyID());
+        assertThat(published.get(0).isPrivate()).isFalse();
+    }
+
+    @Test
+    public void nodesSharingFileShouldUseSameKeysAcrossRestarts() throws Exception{
+        Path path = directory.resolve("jwks.json");
+        String kid = newSet(path).activeKey().getKeyID();
+
+        RotatingJwkSet restarted = newSet(path);
+        RotatingJwkSet otherNode = newSet(path);
+
+        assertThat(Files.readString(path)).contains(kid);
+        assertThat(restarted.activeKey().getKeyID()).isEqualTo(kid);
+        assertThat(otherNode.activeKey().getKeyID()).isEqualTo(kid);
+    }
+
+    @Test
+    public void rotationShouldPublishNewKeyBeforeItSigns() throws Exception{
+        Path path = directory.resolve("jwks.json");
+        RotatingJwkSet sut = newSet(path);
+        RotatingJwkSet otherNode = newSet(path);
+        String first = sut.activeKey().getKeyID();
+
+        clock.advance(ROTATION);
+        sut.refresh();
+        otherNode.refresh();
+
+        assertThat(select(otherNode.verificationKeys())).hasSize(2);
+        assertThat(sut.activeKey().getKeyID()).isEqualTo(first);
+        assertThat(otherNode.activeKey().getKeyID()).isEqualTo(first);
+
+        clock.advance(ACTIVATION);
+        sut.refresh();
+        otherNode.refresh();
+
+        String second = sut.activeKey().getKeyID();
+        assertThat(second).isNotEqualTo(first);
+        assertThat(otherNode.activeKey().getKeyID()).isEqualTo(second);
+        assertThat(select(sut.verificationKeys())).extracting(JWK::getKeyID).containsExactly(first, second);
+    }
+
+    @Test
+    public void rotationShouldHappenOnceWhenSeveralNodesFindItDue() throws Exception{
+        Path path = directory.resolve("jwks.json");
+        RotatingJwkSet sut = newSet(path);
+        RotatingJwkSet otherNode = newSet(path);
+        sut.activeKey();
+        otherNode.refresh();
+
+        clock.advance(ROTATION);
+        sut.refresh();
+        otherNode.refresh();
+
+        assertThat(sut.keys()).hasSize(2);
+        assertThat(otherNode.keys()).extracting(JWK::getKeyID).isEqualTo(sut.keys().stream().map(JWK::getKeyID).toList());
+    }
+
+    @Test
+    public void signingKeysShouldKeepEveryPrivateKeyWhileRotating() throws Exception{
+        RotatingJwkSet sut = newSet(null);
+        sut.activeKey();
+
+        clock.advance(ROTATION);
+        sut.refresh();
+
+        assertThat(select(sut.signingKeys())).hasSize(2).allMatch(JWK::isPrivate);
+    }
+
+    @Test
+    public void rotationShouldMoveSharedFileFromRsaToEcKeys() throws Exception{
+        Path path = directory.resolve("jwks.json");
+        RotatingJwkSet rsaNode = new RotatingJwkSet(path, ROTATION, ACTIVATION, TOKEN_TTL, SigningKeys::rsa, clock);
+        String rsaKid = rsaNode.activeKey().getKeyID();
+        RotatingJwkSet ecNode = newSet(path);
+
+        clock.advance(ROTATION.plus(ACTIVATION));
+        ecNode.refresh();
+        clock.advance(ACTIVATION);
+        ecNode.refresh();
+        rsaNode.refresh();
+
+        assertThat(SigningKeys.algorithmOf(rsaNode.activeKey())).isEqualTo(SignatureAlgorithm.ES256);
+        assertThat(select(rsaNode.verificationKeys())).extracting(JWK::getKeyType).containsExactly(KeyType.RSA, KeyType.EC);
+        assertThat(select(rsaNode.verificationKeys())).extracting(JWK::getKeyID).startsWith(rsaKid);
+    }
+
+    @Test
+    public void retiredKeyShouldBeDroppedOnceItsTokensExpired() throws Exception{
+        RotatingJwkSet sut = newSet(null);
+        String first = sut.activeKey().getKeyID();
+
+        clock.advance(ROTATION);
+        sut.refresh();
+        clock.advance(ACTIVATION.plus(TOKEN_TTL).minusSeconds(1));
+        sut.refresh();
+        assertThat(sut.keys()).extracting(JWK::getKeyID).contains(first);
+
+        clock.advance(Duration.ofSeconds(1));
+        sut.refresh();
+        assertThat(sut.keys()).extracting(JWK::getKeyID).doesNotContain(first).hasSize(1);
+    }
+
+    private RotatingJwkSet newSet(Path path){
+        // EC keys are much cheaper to generate than RSA ones
+        return new RotatingJwkSet(path, ROTATION, ACTIVATION, TOKEN_TTL, SigningKeys::ec, clock);
+    }
+
+    private static List<JWK> select(JWKSource<SecurityContext> source) throws Exception{
+        return source.get(new JWKSelector(new JWKMatcher.Builder().build()), null);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
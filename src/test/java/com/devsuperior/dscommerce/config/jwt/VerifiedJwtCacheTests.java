@@ -0,0 +1,86 @@
+package com.devsuperior.dscommerce.config.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class VerifiedJwtCacheTests {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicInteger decodes;
+    private AtomicInteger conversions;
+    private Instant expiresAt;
+    private VerifiedJwtCache sut;
+    private JwtDecoder decoder;
+
+    @BeforeEach
+    public void setup(){
+        meterRegistry = new SimpleMeterRegistry();
+        decodes = new AtomicInteger();
+        conversions = new AtomicInteger();
+        expiresAt = Instant.now().plusSeconds(3600);
+        Converter<Jwt, Collection<GrantedAuthority>> authorities = jwt -> {
+            conversions.incrementAndGet();
+            return List.of(new SimpleGrantedAuthority(jwt.getClaimAsString("authority")));
+        };
+        sut = new VerifiedJwtCache(100, authorities, meterRegistry);
+        decoder = sut.decoder(token -> {
+            decodes.incrementAndGet();
+            if (token.startsWith("bad")) {
+                throw new BadJwtException("bad signature");
+            }
+            return Jwt.withTokenValue(token).header("alg", "RS256").claim("authority", "ROLE_CLIENT")
+                      .issuedAt(expiresAt.minusSeconds(7200)).expiresAt(expiresAt).build();
+        });
+    }
+
+    @Test
+    public void decodeShouldVerifyEachTokenOnceAndReuseMappedAuthorities(){
+        Jwt first = decoder.decode("token-1");
+        Jwt again = decoder.decode("token-1");
+        decoder.decode("token-2");
+
+        assertThat(again).isSameAs(first);
+        assertThat(decodes).hasValue(2);
+        assertThat(sut.authoritiesConverter().convert(again)).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_CLIENT");
+        assertThat(conversions).hasValue(2);
+        assertThat(meterRegistry.get("cache.gets").tags("cache", VerifiedJwtCache.NAME, "result", "hit").functionCounter().count()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("cache.gets").tags("cache", VerifiedJwtCache.NAME, "result", "miss").functionCounter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    public void decodeShouldNotCacheExpiredOrRejectedTokens(){
+        expiresAt = Instant.now().minusSeconds(1);
+        decoder.decode("token-1");
+        decoder.decode("token-1");
+
+        assertThatThrownBy(() -> decoder.decode("bad-token")).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> decoder.decode("bad-token")).isInstanceOf(BadJwtException.class);
+
+        assertThat(decodes).hasValue(4);
+        assertThat(sut.size()).isZero();
+    }
+
+    @Test
+    public void authoritiesConverterShouldMapTokensThatWereNotCached(){
+        Jwt jwt = Jwt.withTokenValue("other").header("alg", "RS256").claim("authority", "ROLE_ADMIN").build();
+
+        assertThat(sut.authoritiesConverter().convert(jwt)).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_ADMIN");
+        assertThat(conversions).hasValue(1);
+    }
+}
@@ -40,6 +40,7 @@ public class CategoryControllerIT {
             .accept(MediaType.APPLICATION_JSON))
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.totalElements").value(23))
+            .andExpect(jsonPath("$.totalExact").value(true))
             .andExpect(jsonPath("$.content[0].id").value(2L))
             .andExpect(jsonPath("$.content[0].name").value("Smart TV"))
             .andExpect(jsonPath("$.content[1].id").value(3L))
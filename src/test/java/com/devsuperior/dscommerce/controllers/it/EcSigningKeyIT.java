@@ -0,0 +1,48 @@
+package com.devsuperior.dscommerce.controllers.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.devsuperior.dscommerce.util.TokenUtil;
+import com.nimbusds.jwt.SignedJWT;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+@TestPropertySource(properties = "security.jwk.algorithm=ES256")
+public class EcSigningKeyIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenUtil tokenUtil;
+
+    @Test
+    public void passwordGrantShouldIssueEs256TokenThatResourceServerAccepts() throws Exception{
+        String accessToken = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+
+        SignedJWT jwt = SignedJWT.parse(accessToken);
+        assertThat(jwt.getHeader().getAlgorithm().getName()).isEqualTo("ES256");
+        assertThat(jwt.getHeader().getKeyID()).isNotBlank();
+
+        mockMvc.perform(get("/users/me").header("Authorization", "Bearer " + accessToken))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.email").value("maria@gmail.com"));
+        mockMvc.perform(get("/oauth2/jwks"))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.keys[0].kty").value("EC"))
+               .andExpect(jsonPath("$.keys[0].kid").value(jwt.getHeader().getKeyID()))
+               .andExpect(jsonPath("$.keys[0].d").doesNotExist());
+    }
+}
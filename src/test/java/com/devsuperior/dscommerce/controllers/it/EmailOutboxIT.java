@@ -0,0 +1,123 @@
+package com.devsuperior.dscommerce.controllers.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.devsuperior.dscommerce.dtos.EmailDTO;
+import com.devsuperior.dscommerce.entities.EmailOutbox;
+import com.devsuperior.dscommerce.entities.EmailOutboxStatus;
+import com.devsuperior.dscommerce.repositories.EmailOutboxRepository;
+import com.devsuperior.dscommerce.services.EmailOutboxDispatcher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+
+import jakarta.mail.internet.MimeMessage;
+
+// not @Transactional: the dispatcher only sees outbox rows that were committed
+@SpringBootTest
+@AutoConfigureMockMvc
+public class EmailOutboxIT {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP)
+        .withConfiguration(GreenMailConfiguration.aConfig().withDisabledAuthentication());
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private EmailOutboxDispatcher dispatcher;
+
+    @Value("${email.password-recover.uri}")
+    private String recoverUri;
+
+    @Test
+    public void createRecoverTokenShouldRespondBeforeSendingAndDispatcherShouldDeliverEmail() throws Exception{
+        long before = outboxRepository.count();
+
+        mockMvc.perform(post("/auth/recover-token")
+            .content(objectMapper.writeValueAsString(new EmailDTO("alex@gmail.com")))
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isNoContent());
+
+        assertThat(outboxRepository.count()).isEqualTo(before + 1);
+        dispatcher.dispatch();
+        assertThat(greenMail.waitForIncomingEmail(10000, 1)).isTrue();
+
+        MimeMessage received = greenMail.getReceivedMessages()[0];
+        assertThat(received.getAllRecipients()[0].toString()).isEqualTo("alex@gmail.com");
+        assertThat(received.getSubject()).isEqualTo("Recuperação de Senha");
+        assertThat(GreenMailUtil.getBody(received)).contains(recoverUri);
+
+        // the scheduled dispatcher may have sent it first and still be marking the row
+        EmailOutbox outbox = lastOutboxOf("alex@gmail.com");
+        for (long deadline = System.currentTimeMillis() + 10000; outbox.getStatus() != EmailOutboxStatus.SENT
+                                                                 && System.currentTimeMillis() < deadline; ) {
+            Thread.sleep(50);
+            outbox = lastOutboxOf("alex@gmail.com");
+        }
+        assertThat(outbox.getStatus()).isEqualTo(EmailOutboxStatus.SENT);
+        assertThat(outbox.getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    public void purgeShouldDeleteOnlyRowsPastTheirRetention() throws Exception{
+        Instant old = Instant.now().minus(Duration.ofDays(30));
+        EmailOutbox oldSent = outbox(EmailOutboxStatus.SENT, old);
+        EmailOutbox oldDead = outbox(EmailOutboxStatus.DEAD, old);
+        EmailOutbox recentSent = outbox(EmailOutboxStatus.SENT, Instant.now());
+        EmailOutbox oldPending = outbox(EmailOutboxStatus.PENDING, old);
+
+        try {
+            assertThat(dispatcher.purge()).isGreaterThanOrEqualTo(2);
+
+            assertThat(outboxRepository.existsById(oldSent.getId())).isFalse();
+            assertThat(outboxRepository.existsById(oldDead.getId())).isFalse();
+            assertThat(outboxRepository.existsById(recentSent.getId())).isTrue();
+            assertThat(outboxRepository.existsById(oldPending.getId())).isTrue();
+        }
+        finally {
+            outboxRepository.deleteAllById(List.of(recentSent.getId(), oldPending.getId()));
+        }
+    }
+
+    private EmailOutbox lastOutboxOf(String recipient){
+        return outboxRepository.findAll().stream()
+            .filter(x -> x.getRecipient().equals(recipient))
+            .reduce((first, second) -> second).orElseThrow();
+    }
+
+    private EmailOutbox outbox(EmailOutboxStatus status, Instant when){
+        EmailOutbox outbox = new EmailOutbox("maria@gmail.com", "Recuperação de Senha", "body", when);
+        outbox.setStatus(status);
+        // far in the future, so a scheduled dispatch does not pick up the pending row
+        outbox.setNextAttemptAt(when.plus(Duration.ofDays(365)));
+        if (status == EmailOutboxStatus.SENT) {
+            outbox.setSentAt(when);
+        }
+        return outboxRepository.save(outbox);
+    }
+}
@@ -0,0 +1,98 @@
+package com.devsuperior.dscommerce.controllers.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.security.oauth2.server.authorization.JdbcOAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.devsuperior.dscommerce.config.authorization.JdbcAuthorizationSweeper;
+import com.devsuperior.dscommerce.config.authorization.PrincipalAuthorizationService;
+import com.devsuperior.dscommerce.util.TokenUtil;
+
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {"security.authorization-store.type=jdbc", "security.authorization-store.initialize-schema=true"})
+public class JdbcAuthorizationStoreIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenUtil tokenUtil;
+
+    @Autowired
+    private OAuth2AuthorizationService authorizationService;
+
+    @Autowired
+    private JdbcAuthorizationSweeper sweeper;
+
+    @Value("${security.client-id}")
+    private String clientId;
+
+    @Value("${security.client-secret}")
+    private String clientSecret;
+
+    @Test
+    public void passwordGrantShouldPersistAuthorizationThatCanBeReadBackByToken() throws Exception{
+        String token = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+
+        OAuth2Authorization authorization = authorizationService.findByToken(token, OAuth2TokenType.ACCESS_TOKEN);
+
+        assertThat(authorizationService).isInstanceOf(JdbcOAuth2AuthorizationService.class);
+        assertThat(authorization).isNotNull();
+        assertThat(authorization.getAccessToken().getToken().getTokenValue()).isEqualTo(token);
+        assertThat(authorizationService.findById(authorization.getId())).isNotNull();
+    }
+
+    @Test
+    public void refreshGrantShouldReadStoredResourceOwnerBack() throws Exception{
+        String token = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+        OAuth2Authorization authorization = authorizationService.findByToken(token, OAuth2TokenType.ACCESS_TOKEN);
+        String refreshToken = authorization.getRefreshToken().getToken().getTokenValue();
+
+        mockMvc.perform(post("/oauth2/token")
+                        .param("grant_type", "refresh_token")
+                        .param("refresh_token", refreshToken)
+                        .with(httpBasic(clientId, clientSecret)))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.access_token").exists());
+
+        assertThat(authorizationService.findByToken(refreshToken, OAuth2TokenType.REFRESH_TOKEN)).isNull();
+    }
+
+    @Test
+    public void removeByPrincipalNameShouldDropEveryAuthorizationOfThatUser() throws Exception{
+        String first = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+        String second = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+        String other = tokenUtil.obtainAccessToken(mockMvc, "alex@gmail.com", "123456");
+
+        assertThat(((PrincipalAuthorizationService) authorizationService).removeByPrincipalName("maria@gmail.com")).isGreaterThanOrEqualTo(2);
+
+        assertThat(authorizationService.findByToken(first, OAuth2TokenType.ACCESS_TOKEN)).isNull();
+        assertThat(authorizationService.findByToken(second, OAuth2TokenType.ACCESS_TOKEN)).isNull();
+        assertThat(authorizationService.findByToken(other, OAuth2TokenType.ACCESS_TOKEN)).isNotNull();
+    }
+
+    @Test
+    public void sweepShouldKeepAuthorizationsWhoseTokensAreStillValid() throws Exception{
+        String token = tokenUtil.obtainAccessToken(mockMvc, "alex@gmail.com", "123456");
+
+        sweeper.sweep();
+
+        assertThat(authorizationService.findByToken(token, OAuth2TokenType.ACCESS_TOKEN)).isNotNull();
+    }
+}
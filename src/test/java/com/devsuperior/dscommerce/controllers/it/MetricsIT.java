@@ -0,0 +1,80 @@
+package com.devsuperior.dscommerce.controllers.it;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.devsuperior.dscommerce.util.TokenUtil;
+
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@Transactional
+public class MetricsIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenUtil tokenUtil;
+
+    @Test
+    public void prometheusShouldReturnHttpStatus401WhenNoUserIsLogged() throws Exception{
+        mockMvc.perform(get("/actuator/prometheus"))
+            .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void prometheusShouldReturnHttpStatus403WhenClientIsLogged() throws Exception{
+        String bearerTokenClient = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+
+        mockMvc.perform(get("/actuator/prometheus")
+            .header("Authorization", "Bearer " + bearerTokenClient))
+            .andExpect(status().isForbidden());
+    }
+
+    @Test
+    public void healthShouldReturnStatusWhenNoUserIsLogged() throws Exception{
+        // UP or DOWN depends on the mail server being around; only the access matters here
+        mockMvc.perform(get("/actuator/health"))
+            .andExpect(jsonPath("$.status").exists());
+    }
+
+    @Test
+    public void prometheusShouldReturnHttpStatus200WithServiceRepositoryAndSqlMetricsWhenAdminIsLogged() throws Exception{
+        String bearerTokenAdmin = tokenUtil.obtainAccessToken(mockMvc, "alex@gmail.com", "123456");
+        mockMvc.perform(get("/categories/3/products")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus")
+            .header("Authorization", "Bearer " + bearerTokenAdmin))
+            .andExpect(status().isOk())
+            .andExpect(content().string(containsString("dscommerce_service_seconds_bucket{class=\"com.devsuperior.dscommerce.services.CategoryService\"")))
+            .andExpect(content().string(containsString("spring_data_repository_invocations_seconds_count{")))
+            .andExpect(content().string(containsString("dscommerce_http_sql_statements_count{method=\"GET\",uri=\"/categories/{id}/products\"}")))
+            .andExpect(content().string(containsString("hibernate_statements_total")));
+    }
+
+    @Test
+    public void prometheusShouldCountPasswordGrants() throws Exception{
+        String bearerTokenAdmin = tokenUtil.obtainAccessToken(mockMvc, "alex@gmail.com", "123456");
+
+        mockMvc.perform(get("/actuator/prometheus")
+            .header("Authorization", "Bearer " + bearerTokenAdmin))
+            .andExpect(status().isOk())
+            .andExpect(content().string(containsString("dscommerce_auth_password_grants_total{outcome=\"issued\"}")));
+    }
+}
@@ -1,5 +1,6 @@
 package com.devsuperior.dscommerce.controllers.it;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -16,18 +17,26 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.devsuperior.dscommerce.dtos.OrderDTO;
+import com.devsuperior.dscommerce.dtos.OrderItemDTO;
 import com.devsuperior.dscommerce.entities.Order;
 import com.devsuperior.dscommerce.entities.OrderItem;
 import com.devsuperior.dscommerce.entities.OrderStatus;
 import com.devsuperior.dscommerce.entities.Product;
 import com.devsuperior.dscommerce.entities.User;
 import com.devsuperior.dscommerce.factories.ProductFactory;
+import com.devsuperior.dscommerce.metrics.SqlStatementMetricsFilter;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
 import com.devsuperior.dscommerce.util.TokenUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+
 @SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
 @AutoConfigureMockMvc
 @Transactional
@@ -42,6 +51,15 @@ public class OrderControllerIT {
     @Autowired
     private TokenUtil tokenUtil;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ProductRepository productRepository;
+
     private String adminUsername,adminPassword;
     private String clientUsername,clientPassword;
     private String bearerTokenClient,bearerTokenAdmin;
@@ -139,6 +157,113 @@ public class OrderControllerIT {
             .andExpect(status().isForbidden());
     }
 
+    @Test
+    public void findMineShouldReturnHttpStatus401WhenNoUserIsLogged() throws Exception{
+        mockMvc.perform(get("/orders/my")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void findMineShouldReturnOnlyLoggedClientOrdersNewestFirst() throws Exception{
+        mockMvc.perform(get("/orders/my")
+            .header("Authorization", "Bearer " + bearerTokenClient)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.totalElements").value(2))
+            .andExpect(jsonPath("$.content[0].id").value(3L))
+            .andExpect(jsonPath("$.content[1].id").value(existingId))
+            .andExpect(jsonPath("$.content[1].client.name").value("Maria Brown"))
+            .andExpect(jsonPath("$.content[1].payment").exists())
+            .andExpect(jsonPath("$.content[1].items.length()").value(2))
+            .andExpect(jsonPath("$.content[1].total").value(1431.0));
+    }
+
+    @Test
+    public void findMineShouldRunSameNumberOfStatementsWhateverThePageSize() throws Exception{
+        statementsFor("/orders/my", get("/orders/my"));
+
+        int smallPage = statementsFor("/orders/my", get("/orders/my").param("size", "1"));
+        int largePage = statementsFor("/orders/my", get("/orders/my").param("size", "2"));
+
+        assertThat(largePage).isEqualTo(smallPage);
+        assertThat(largePage).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    public void findAllShouldReturnHttpStatus403WhenClientIsLogged() throws Exception{
+        mockMvc.perform(get("/orders")
+            .header("Authorization", "Bearer " + bearerTokenClient)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isForbidden());
+    }
+
+    @Test
+    public void findAllShouldReturnEveryOrderWhenAdminIsLoggedAndNoFilterIsGiven() throws Exception{
+        mockMvc.perform(get("/orders")
+            .header("Authorization", "Bearer " + bearerTokenAdmin)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.totalElements").value(3))
+            .andExpect(jsonPath("$.content[0].id").value(3L))
+            .andExpect(jsonPath("$.content[2].id").value(existingId));
+    }
+
+    @Test
+    public void findAllShouldFilterByStatusAndDateRangeWhenAdminIsLogged() throws Exception{
+        mockMvc.perform(get("/orders")
+            .param("status", "DELIVERED")
+            .header("Authorization", "Bearer " + bearerTokenAdmin)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.totalElements").value(1))
+            .andExpect(jsonPath("$.content[0].id").value(otherClientOrderId))
+            .andExpect(jsonPath("$.content[0].client.name").value("Alex Green"));
+
+        mockMvc.perform(get("/orders")
+            .param("minDate", "2022-07-26T00:00:00Z")
+            .param("maxDate", "2022-08-31T23:59:59Z")
+            .param("sort", "moment,asc")
+            .header("Authorization", "Bearer " + bearerTokenAdmin)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.totalElements").value(2))
+            .andExpect(jsonPath("$.content[0].id").value(otherClientOrderId))
+            .andExpect(jsonPath("$.content[1].id").value(3L));
+    }
+
+    @Test
+    public void findAllShouldReturnHttpStatus400WhenStatusIsInvalid() throws Exception{
+        mockMvc.perform(get("/orders")
+            .param("status", "LOST")
+            .header("Authorization", "Bearer " + bearerTokenAdmin)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void findByIdShouldRunSameNumberOfStatementsWhateverTheItemCount() throws Exception{
+        Long orderId = 3L;
+        statementsFor("/orders/{id}", get("/orders/{id}", orderId));
+        int oneItem = statementsFor("/orders/{id}", get("/orders/{id}", orderId));
+
+        Order existing = entityManager.getReference(Order.class, orderId);
+        for (long productId = 2; productId <= 25; productId++) {
+            entityManager.persist(new OrderItem(existing, productRepository.getReferenceById(productId), 1, 10.0));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        int manyItems = statementsFor("/orders/{id}", get("/orders/{id}", orderId));
+
+        assertThat(manyItems).isEqualTo(oneItem);
+        assertThat(manyItems).isLessThanOrEqualTo(2);
+        mockMvc.perform(get("/orders/{id}", orderId)
+            .header("Authorization", "Bearer " + bearerTokenClient)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.items.length()").value(25));
+    }
+
     @Test
     public void insertShouldReturnHttpStatus401WhenNoUserIsLogged() throws Exception{
         mockMvc.perform(post("/orders")
@@ -162,6 +287,34 @@ public class OrderControllerIT {
                 .andExpect(jsonPath("$.items[0].productId").value(1L));
     }
 
+    @Test
+    public void insertShouldReturnHttpStatus201WithCurrentPricesWhenOrderHasManyItems() throws Exception{
+        dto.getItems().clear();
+        for (long id = 1; id <= 3; id++) {
+            dto.getItems().add(new OrderItemDTO(id, null, 1.0, 2, null));
+        }
+
+        mockMvc.perform(post("/orders")
+            .header("Authorization", "Bearer " + bearerTokenClient)
+            .content(objectMapper.writeValueAsString(dto))
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.items.length()").value(3))
+            .andExpect(jsonPath("$.items[?(@.productId == 2)].price").value(2190.0));
+    }
+
+    @Test
+    public void insertShouldReturnHttpStatus404WhenUserIsLoggedButProductDoesNotExist() throws Exception{
+        dto.getItems().add(new OrderItemDTO(nonExistingId, null, 1.0, 1, null));
+
+        mockMvc.perform(post("/orders")
+            .header("Authorization", "Bearer " + bearerTokenClient)
+            .content(objectMapper.writeValueAsString(dto))
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isNotFound())
+            .andExpect(jsonPath("$.error").value("Produtos não encontrados! Ids: [999]"));
+    }
+
     @Test
     public void insertShouldReturnHttpStatus422WhenUserIsLoggedButItemsIsEmpty() throws Exception{
         dto.getItems().clear();
@@ -174,4 +327,15 @@ public class OrderControllerIT {
             .andExpect(jsonPath("$.errors[0].fieldName").value("items"))
             .andExpect(jsonPath("$.errors[0].message").value("O pedido deve ter pelo menos 1 item"));
     }
+
+    private int statementsFor(String uri,MockHttpServletRequestBuilder request) throws Exception{
+        DistributionSummary summary = meterRegistry.find(SqlStatementMetricsFilter.METRIC_NAME).tag("uri", uri).summary();
+        double before = (summary == null) ? 0 : summary.totalAmount();
+        mockMvc.perform(request
+            .header("Authorization", "Bearer " + bearerTokenClient)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk());
+        summary = meterRegistry.find(SqlStatementMetricsFilter.METRIC_NAME).tag("uri", uri).summary();
+        return (int) (summary.totalAmount() - before);
+    }
 }
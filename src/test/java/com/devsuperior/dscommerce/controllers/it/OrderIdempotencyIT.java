@@ -0,0 +1,183 @@
+package com.devsuperior.dscommerce.controllers.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.json.JacksonJsonParser;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.devsuperior.dscommerce.config.idempotency.IdempotencyStore;
+import com.devsuperior.dscommerce.config.idempotency.JdbcIdempotencyStore;
+import com.devsuperior.dscommerce.dtos.OrderDTO;
+import com.devsuperior.dscommerce.dtos.OrderItemDTO;
+import com.devsuperior.dscommerce.repositories.OrderRepository;
+import com.devsuperior.dscommerce.services.IdempotencyService;
+import com.devsuperior.dscommerce.util.SeedOrders;
+import com.devsuperior.dscommerce.util.TokenUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// not @Transactional: duplicates run on other threads and must see the committed order and key
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {"idempotency.store.type=jdbc", "idempotency.store.initialize-schema=true"})
+public class OrderIdempotencyIT {
+
+    private static final int DUPLICATES = 8;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TokenUtil tokenUtil;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private SeedOrders seedOrders;
+
+    private String bearerToken;
+    private OrderDTO dto;
+
+    @BeforeEach
+    public void setup() throws Exception{
+        bearerToken = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+        dto = new OrderDTO(null, null, null, null, null);
+        dto.getItems().add(new OrderItemDTO(1L, null, 1.0, 2, null));
+    }
+
+    @AfterEach
+    public void tearDown(){
+        seedOrders.restore();
+    }
+
+    @Test
+    public void insertShouldReplayStoredResponseWithoutCreatingOrderWhenKeyIsRepeated() throws Exception{
+        String key = UUID.randomUUID().toString();
+
+        MockHttpServletResponse first = insert(key, dto);
+        long orders = orderRepository.count();
+        MockHttpServletResponse replay = insert(key, dto);
+
+        assertThat(idempotencyStore).isInstanceOf(JdbcIdempotencyStore.class);
+        assertThat(first.getStatus()).isEqualTo(201);
+        assertThat(first.getHeader(IdempotencyService.REPLAYED_HEADER)).isNull();
+        assertThat(replay.getStatus()).isEqualTo(201);
+        assertThat(replay.getHeader(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(replay.getHeader("Location")).isEqualTo(first.getHeader("Location"));
+        assertThat(orderId(replay)).isEqualTo(orderId(first));
+        assertThat(orderRepository.count()).isEqualTo(orders);
+    }
+
+    @Test
+    public void insertShouldReturnHttpStatus422WhenKeyIsReusedWithOtherBody() throws Exception{
+        String key = UUID.randomUUID().toString();
+        insert(key, dto);
+        OrderDTO other = new OrderDTO(null, null, null, null, null);
+        other.getItems().add(new OrderItemDTO(3L, null, 1.0, 1, null));
+
+        mockMvc.perform(post("/orders")
+            .header("Authorization", "Bearer " + bearerToken)
+            .header(IdempotencyService.HEADER, key)
+            .content(objectMapper.writeValueAsString(other))
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isUnprocessableEntity())
+            .andExpect(jsonPath("$.error").value("Idempotency-Key já usada com outro conteúdo"));
+    }
+
+    @Test
+    public void insertShouldLetClientRetryKeyWhenFirstRequestFailed() throws Exception{
+        String key = UUID.randomUUID().toString();
+        OrderDTO missingProduct = new OrderDTO(null, null, null, null, null);
+        missingProduct.getItems().add(new OrderItemDTO(999L, null, 1.0, 1, null));
+
+        mockMvc.perform(post("/orders")
+            .header("Authorization", "Bearer " + bearerToken)
+            .header(IdempotencyService.HEADER, key)
+            .content(objectMapper.writeValueAsString(missingProduct))
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isNotFound());
+
+        mockMvc.perform(post("/orders")
+            .header("Authorization", "Bearer " + bearerToken)
+            .header(IdempotencyService.HEADER, key)
+            .content(objectMapper.writeValueAsString(dto))
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isCreated())
+            .andExpect(header().doesNotExist(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    public void concurrentDuplicatesShouldCreateOneOrderAndAllReturnIt() throws Exception{
+        String key = UUID.randomUUID().toString();
+        long orders = orderRepository.count();
+
+        ExecutorService executor = Executors.newFixedThreadPool(DUPLICATES);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<MockHttpServletResponse>> futures = new ArrayList<>(DUPLICATES);
+        try {
+            for (int i = 0; i < DUPLICATES; i++) {
+                Callable<MockHttpServletResponse> task = () -> {
+                    start.await();
+                    return insert(key, dto);
+                };
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+
+            List<Object> ids = new ArrayList<>();
+            for (Future<MockHttpServletResponse> future : futures) {
+                MockHttpServletResponse response = future.get(1, TimeUnit.MINUTES);
+                assertThat(response.getStatus()).isEqualTo(201);
+                ids.add(orderId(response));
+            }
+            assertThat(ids).containsOnly(ids.get(0));
+            assertThat(orderRepository.count()).isEqualTo(orders + 1);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private MockHttpServletResponse insert(String key, OrderDTO body) throws Exception{
+        return mockMvc.perform(post("/orders")
+                    .header("Authorization", "Bearer " + bearerToken)
+                    .header(IdempotencyService.HEADER, key)
+                    .content(objectMapper.writeValueAsString(body))
+                    .contentType(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+    }
+
+    private Object orderId(MockHttpServletResponse response) throws Exception{
+        return new JacksonJsonParser().parseMap(response.getContentAsString()).get("id");
+    }
+}
@@ -0,0 +1,242 @@
+package com.devsuperior.dscommerce.controllers.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.json.JacksonJsonParser;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.transaction.AfterTransaction;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.devsuperior.dscommerce.dtos.OrderDTO;
+import com.devsuperior.dscommerce.dtos.OrderItemDTO;
+import com.devsuperior.dscommerce.dtos.StockDTO;
+import com.devsuperior.dscommerce.util.SeedOrders;
+import com.devsuperior.dscommerce.util.TokenUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@Transactional
+public class OrderStockIT {
+
+    private static final int THREADS = 32;
+    private static final int CHECKOUTS = 200;
+    private static final int HOT_STOCK = 50;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TokenUtil tokenUtil;
+
+    @Autowired
+    private SeedOrders seedOrders;
+
+    private String bearerTokenClient,bearerTokenAdmin;
+    private Long productId, hotProductId, nonExistingId;
+
+    @BeforeEach
+    public void setup() throws Exception{
+        bearerTokenClient = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+        bearerTokenAdmin = tokenUtil.obtainAccessToken(mockMvc, "alex@gmail.com", "123456");
+        productId = 3L;
+        hotProductId = 2L;
+        nonExistingId = 999L;
+    }
+
+    // a rolled back insert still consumes an order id
+    @AfterTransaction
+    public void rewindOrderIds(){
+        seedOrders.restore();
+    }
+
+    @Test
+    public void insertShouldReturnHttpStatus409AndKeepStockWhenQuantityExceedsStock() throws Exception{
+        updateStock(productId, 1);
+
+        mockMvc.perform(post("/orders")
+            .header("Authorization", "Bearer " + bearerTokenClient)
+            .content(objectMapper.writeValueAsString(order(productId, 2)))
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isConflict())
+            .andExpect(jsonPath("$.error").value("Estoque insuficiente! Ids: [3]"));
+
+        assertThat(stock(productId)).isEqualTo(1);
+    }
+
+    @Test
+    public void insertShouldReturnHttpStatus422WhenQuantityIsNotPositive() throws Exception{
+        mockMvc.perform(post("/orders")
+            .header("Authorization", "Bearer " + bearerTokenClient)
+            .content(objectMapper.writeValueAsString(order(productId, -5)))
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isUnprocessableEntity())
+            .andExpect(jsonPath("$.errors[0].fieldName").value("items[0].quantity"));
+    }
+
+    @Test
+    public void cancelShouldReleaseReservedStockOnce() throws Exception{
+        updateStock(productId, 5);
+
+        String body = mockMvc.perform(post("/orders")
+            .header("Authorization", "Bearer " + bearerTokenClient)
+            .content(objectMapper.writeValueAsString(order(productId, 2)))
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isCreated())
+            .andReturn().getResponse().getContentAsString();
+        Object orderId = new JacksonJsonParser().parseMap(body).get("id");
+        assertThat(stock(productId)).isEqualTo(3);
+
+        mockMvc.perform(put("/orders/{id}/cancel", orderId)
+            .header("Authorization", "Bearer " + bearerTokenClient))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value("CANCELED"));
+        assertThat(stock(productId)).isEqualTo(5);
+
+        mockMvc.perform(put("/orders/{id}/cancel", orderId)
+            .header("Authorization", "Bearer " + bearerTokenAdmin))
+            .andExpect(status().isConflict());
+        assertThat(stock(productId)).isEqualTo(5);
+    }
+
+    @Test
+    public void cancelShouldReturnHttpStatus409WhenClientCancelsPaidOrder() throws Exception{
+        // order 1 is maria's and already PAID: only an admin may cancel it
+        mockMvc.perform(put("/orders/{id}/cancel", 1L)
+            .header("Authorization", "Bearer " + bearerTokenClient))
+            .andExpect(status().isConflict())
+            .andExpect(jsonPath("$.error").value("Pedido não pode ser cancelado no status PAID"));
+
+        mockMvc.perform(put("/orders/{id}/cancel", 1L)
+            .header("Authorization", "Bearer " + bearerTokenAdmin))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value("CANCELED"));
+    }
+
+    @Test
+    public void cancelShouldReturnHttpStatus403WhenOrderBelongsToOtherClient() throws Exception{
+        mockMvc.perform(put("/orders/{id}/cancel", 2L)
+            .header("Authorization", "Bearer " + bearerTokenClient))
+            .andExpect(status().isForbidden());
+    }
+
+    @Test
+    public void updateStockShouldReturnHttpStatus403WhenClientIsLogged() throws Exception{
+        mockMvc.perform(put("/products/{id}/stock", productId)
+            .header("Authorization", "Bearer " + bearerTokenClient)
+            .content(objectMapper.writeValueAsString(new StockDTO(null, 10)))
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isForbidden());
+    }
+
+    @Test
+    public void updateStockShouldReturnHttpStatus422WhenStockIsNegative() throws Exception{
+        mockMvc.perform(put("/products/{id}/stock", productId)
+            .header("Authorization", "Bearer " + bearerTokenAdmin)
+            .content(objectMapper.writeValueAsString(new StockDTO(null, -1)))
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    public void updateStockShouldReturnHttpStatus404WhenProductDoesNotExist() throws Exception{
+        mockMvc.perform(put("/products/{id}/stock", nonExistingId)
+            .header("Authorization", "Bearer " + bearerTokenAdmin)
+            .content(objectMapper.writeValueAsString(new StockDTO(null, 10)))
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isNotFound());
+    }
+
+    // each checkout commits on its own thread, as in production
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void concurrentCheckoutsOfHotProductShouldNeverOversell() throws Exception{
+        updateStock(hotProductId, HOT_STOCK);
+        String body = objectMapper.writeValueAsString(order(hotProductId, 1));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>(CHECKOUTS);
+        try {
+            for (int i = 0; i < CHECKOUTS; i++) {
+                Callable<Integer> task = () -> {
+                    start.await();
+                    return mockMvc.perform(post("/orders")
+                                .header("Authorization", "Bearer " + bearerTokenClient)
+                                .content(body)
+                                .contentType(MediaType.APPLICATION_JSON))
+                            .andReturn().getResponse().getStatus();
+                };
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+
+            int created = 0, rejected = 0;
+            for (Future<Integer> future : futures) {
+                int status = future.get(2, TimeUnit.MINUTES);
+                if (status == 201) {
+                    created++;
+                }
+                else if (status == 409) {
+                    rejected++;
+                }
+            }
+            assertThat(created).isEqualTo(HOT_STOCK);
+            assertThat(rejected).isEqualTo(CHECKOUTS - HOT_STOCK);
+            assertThat(stock(hotProductId)).isZero();
+        }
+        finally {
+            executor.shutdownNow();
+            updateStock(hotProductId, 1000);
+            seedOrders.restore();
+        }
+    }
+
+    private OrderDTO order(Long productId, int quantity){
+        OrderDTO dto = new OrderDTO(null, null, null, null, null);
+        dto.getItems().add(new OrderItemDTO(productId, null, 1.0, quantity, null));
+        return dto;
+    }
+
+    private void updateStock(Long productId, int stock) throws Exception{
+        mockMvc.perform(put("/products/{id}/stock", productId)
+            .header("Authorization", "Bearer " + bearerTokenAdmin)
+            .content(objectMapper.writeValueAsString(new StockDTO(null, stock)))
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.stock").value(stock));
+    }
+
+    private int stock(Long productId) throws Exception{
+        String body = mockMvc.perform(get("/products/{id}/stock", productId)
+            .header("Authorization", "Bearer " + bearerTokenAdmin))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        return ((Number) new JacksonJsonParser().parseMap(body).get("stock")).intValue();
+    }
+}
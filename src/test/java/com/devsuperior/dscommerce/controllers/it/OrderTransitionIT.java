@@ -0,0 +1,238 @@
+package com.devsuperior.dscommerce.controllers.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.json.JacksonJsonParser;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.devsuperior.dscommerce.dtos.OrderStatusDTO;
+import com.devsuperior.dscommerce.dtos.OrderTransitionDTO;
+import com.devsuperior.dscommerce.entities.OrderStatus;
+import com.devsuperior.dscommerce.util.SeedOrders;
+import com.devsuperior.dscommerce.util.TokenUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// not transactional: bulk transitions commit chunk by chunk on their own thread
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+public class OrderTransitionIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TokenUtil tokenUtil;
+
+    @Autowired
+    private SeedOrders seedOrders;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String bearerTokenClient,bearerTokenAdmin;
+    private Long productId, deliveredOrderId, nonExistingId;
+    private Integer initialStock;
+
+    @BeforeEach
+    public void setup() throws Exception{
+        bearerTokenClient = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+        bearerTokenAdmin = tokenUtil.obtainAccessToken(mockMvc, "alex@gmail.com", "123456");
+        productId = 1L;
+        deliveredOrderId = 2L;
+        nonExistingId = 999999L;
+        initialStock = jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, productId);
+    }
+
+    @AfterEach
+    public void tearDown(){
+        seedOrders.restore();
+        jdbcTemplate.update("UPDATE products SET stock = ? WHERE id = ?", initialStock, productId);
+    }
+
+    @Test
+    public void updateStatusShouldReturnOrderWithPaymentWhenAdminPaysWaitingOrder() throws Exception{
+        Long id = insertOrders(1, OrderStatus.WAITING_PAYMENT).get(0);
+
+        mockMvc.perform(put("/orders/{id}/status", id)
+            .header("Authorization", "Bearer " + bearerTokenAdmin)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new OrderStatusDTO(OrderStatus.PAID))))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value("PAID"))
+            .andExpect(jsonPath("$.payment.id").value(id));
+
+        assertThat(statusOf(id)).isEqualTo(OrderStatus.PAID);
+    }
+
+    @Test
+    public void updateStatusShouldReleaseStockWhenAdminCancelsOrder() throws Exception{
+        Long id = insertOrders(1, OrderStatus.PAID).get(0);
+
+        mockMvc.perform(put("/orders/{id}/status", id)
+            .header("Authorization", "Bearer " + bearerTokenAdmin)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new OrderStatusDTO(OrderStatus.CANCELED))))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value("CANCELED"));
+
+        assertThat(stock()).isEqualTo(initialStock + 2);
+    }
+
+    @Test
+    public void updateStatusShouldReturnHttpStatus409WhenTransitionIsNotAllowed() throws Exception{
+        mockMvc.perform(put("/orders/{id}/status", deliveredOrderId)
+            .header("Authorization", "Bearer " + bearerTokenAdmin)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new OrderStatusDTO(OrderStatus.SHIPPED))))
+            .andExpect(status().isConflict());
+
+        assertThat(statusOf(deliveredOrderId)).isEqualTo(OrderStatus.DELIVERED);
+    }
+
+    @Test
+    public void updateStatusShouldReturnHttpStatus403WhenClientIsLogged() throws Exception{
+        mockMvc.perform(put("/orders/{id}/status", deliveredOrderId)
+            .header("Authorization", "Bearer " + bearerTokenClient)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new OrderStatusDTO(OrderStatus.SHIPPED))))
+            .andExpect(status().isForbidden());
+    }
+
+    @Test
+    public void transitionShouldReturnHttpStatus422WhenNoOrderIsGiven() throws Exception{
+        mockMvc.perform(post("/orders/status-transitions")
+            .header("Authorization", "Bearer " + bearerTokenAdmin)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new OrderTransitionDTO(OrderStatus.SHIPPED, List.of()))))
+            .andExpect(status().isUnprocessableEntity())
+            .andExpect(jsonPath("$.errors[0].fieldName").value("orderIds"));
+    }
+
+    @Test
+    public void transitionShouldShipEligibleOrdersInChunksAndReportTheRest() throws Exception{
+        List<Long> paid = insertOrders(1050, OrderStatus.PAID);
+        List<Long> ids = new ArrayList<>(paid);
+        ids.add(deliveredOrderId);
+        ids.add(nonExistingId);
+        ids.add(paid.get(0));
+        Collections.shuffle(ids);
+
+        String location = mockMvc.perform(post("/orders/status-transitions")
+            .header("Authorization", "Bearer " + bearerTokenAdmin)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new OrderTransitionDTO(OrderStatus.SHIPPED, ids))))
+            .andExpect(status().isAccepted())
+            .andExpect(header().string("Location", containsString("/orders/status-transitions/")))
+            .andExpect(jsonPath("$.total").value(1052))
+            .andReturn().getResponse().getHeader("Location");
+
+        Map<String, Object> job = awaitJob(location);
+
+        assertThat(job.get("state")).isEqualTo("DONE");
+        assertThat(job.get("processed")).isEqualTo(1052);
+        assertThat(job.get("updated")).isEqualTo(1050);
+        assertThat(job.get("rejected")).isEqualTo(2);
+        assertThat(job.get("rejectedIds")).asList().containsExactlyInAnyOrder(deliveredOrderId.intValue(), nonExistingId.intValue());
+        assertThat(countInStatus(paid, OrderStatus.SHIPPED)).isEqualTo(1050);
+        assertThat(statusOf(deliveredOrderId)).isEqualTo(OrderStatus.DELIVERED);
+    }
+
+    @Test
+    public void transitionShouldReleaseStockOnceWhenCancelingOrders() throws Exception{
+        List<Long> paid = insertOrders(150, OrderStatus.PAID);
+
+        for (int i = 0; i < 2; i++) {
+            String location = mockMvc.perform(post("/orders/status-transitions")
+                .header("Authorization", "Bearer " + bearerTokenAdmin)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new OrderTransitionDTO(OrderStatus.CANCELED, paid))))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getHeader("Location");
+            awaitJob(location);
+        }
+
+        assertThat(countInStatus(paid, OrderStatus.CANCELED)).isEqualTo(150);
+        assertThat(stock()).isEqualTo(initialStock + 150 * 2);
+    }
+
+    @Test
+    public void findTransitionShouldReturnHttpStatus404WhenIdDoesNotExist() throws Exception{
+        mockMvc.perform(get("/orders/status-transitions/{id}", "unknown")
+            .header("Authorization", "Bearer " + bearerTokenAdmin))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void transitionShouldReturnHttpStatus403WhenClientIsLogged() throws Exception{
+        mockMvc.perform(post("/orders/status-transitions")
+            .header("Authorization", "Bearer " + bearerTokenClient)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new OrderTransitionDTO(OrderStatus.SHIPPED, List.of(deliveredOrderId)))))
+            .andExpect(status().isForbidden());
+    }
+
+    // orders of maria with one line of two units of the product each
+    private List<Long> insertOrders(int count, OrderStatus status){
+        Long lastId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM orders", Long.class);
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[] { status.ordinal() });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orders (moment, status, client_id) VALUES (CURRENT_TIMESTAMP, ?, 1)", rows);
+        jdbcTemplate.update("INSERT INTO order_items (order_id, product_id, quantity, price) SELECT id, ?, 2, 90.5 FROM orders WHERE id > ?",
+                            productId, lastId);
+        return jdbcTemplate.queryForList("SELECT id FROM orders WHERE id > ? ORDER BY id", Long.class, lastId);
+    }
+
+    private Map<String, Object> awaitJob(String location) throws Exception{
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (true) {
+            String body = mockMvc.perform(get(location)
+                .header("Authorization", "Bearer " + bearerTokenAdmin))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+            Map<String, Object> job = new JacksonJsonParser().parseMap(body);
+            if (job.get("finishedAt") != null || System.currentTimeMillis() > deadline) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    private OrderStatus statusOf(Long id){
+        return OrderStatus.values()[jdbcTemplate.queryForObject("SELECT status FROM orders WHERE id = ?", Integer.class, id)];
+    }
+
+    private int countInStatus(List<Long> ids, OrderStatus status){
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE id BETWEEN ? AND ? AND status = ?", Integer.class,
+                                           ids.get(0), ids.get(ids.size() - 1), status.ordinal());
+    }
+
+    private int stock(){
+        return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, productId);
+    }
+}
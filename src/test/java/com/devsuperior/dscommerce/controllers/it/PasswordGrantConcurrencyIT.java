@@ -0,0 +1,110 @@
+package com.devsuperior.dscommerce.controllers.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.json.JacksonJsonParser;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PasswordGrantConcurrencyIT {
+
+    private static final int THREADS = 16;
+    private static final int GRANTS = 64;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtDecoder jwtDecoder;
+
+    @Value("${security.client-id}")
+    private String clientId;
+
+    @Value("${security.client-secret}")
+    private String clientSecret;
+
+    private record Grant(String username, String password, boolean valid, List<String> authorities) {}
+
+    private record Outcome(Grant grant, int status, String accessToken) {}
+
+    @Test
+    public void concurrentPasswordGrantsShouldEachIssueTokenForTheirOwnUser() throws Exception{
+        // a client and an admin interleaved, so a token carrying the other user's roles would show up
+        List<Grant> grants = new ArrayList<>(GRANTS);
+        for (int i = 0; i < GRANTS; i++) {
+            boolean valid = i % 4 != 3;
+            String password = valid ? "123456" : "wrong-" + i;
+            grants.add((i % 2 == 0) ? new Grant("maria@gmail.com", password, valid, List.of("ROLE_CLIENT"))
+                                    : new Grant("alex@gmail.com", password, valid, List.of("ROLE_CLIENT", "ROLE_ADMIN")));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Outcome>> futures = new ArrayList<>(GRANTS);
+        try {
+            for (Grant grant : grants) {
+                Callable<Outcome> task = () -> {
+                    start.await();
+                    return requestToken(grant);
+                };
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+
+            List<Outcome> outcomes = new ArrayList<>(GRANTS);
+            for (Future<Outcome> future : futures) {
+                outcomes.add(future.get(2, TimeUnit.MINUTES));
+            }
+
+            for (Outcome outcome : outcomes) {
+                if (outcome.grant().valid()) {
+                    assertThat(outcome.status()).isEqualTo(200);
+                    Jwt jwt = jwtDecoder.decode(outcome.accessToken());
+                    assertThat(jwt.getClaimAsString("username")).isEqualTo(outcome.grant().username());
+                    assertThat(jwt.getClaimAsStringList("authorities")).containsExactlyInAnyOrderElementsOf(outcome.grant().authorities());
+                }
+                else {
+                    assertThat(outcome.status()).isEqualTo(400);
+                    assertThat(outcome.accessToken()).isNull();
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Outcome requestToken(Grant grant) throws Exception{
+        MockHttpServletResponse response = mockMvc.perform(post("/oauth2/token")
+                .param("grant_type", "password")
+                .param("username", grant.username())
+                .param("password", grant.password())
+                .with(httpBasic(clientId, clientSecret))
+                .accept("application/json;charset=UTF-8"))
+            .andReturn().getResponse();
+        Object token = (response.getStatus() == 200)
+                ? new JacksonJsonParser().parseMap(response.getContentAsString()).get("access_token")
+                : null;
+        return new Outcome(grant, response.getStatus(), (token == null) ? null : token.toString());
+    }
+}
@@ -0,0 +1,82 @@
+package com.devsuperior.dscommerce.controllers.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// one hashing thread and one queue slot, at a cost slow enough that two encodes keep both busy for a while
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {"security.password-hashing.threads=1", "security.password-hashing.queue-capacity=1",
+                                  "security.password-hashing.bcrypt-strength=14"})
+public class PasswordHashingOverloadIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${security.client-id}")
+    private String clientId;
+
+    @Value("${security.client-secret}")
+    private String clientSecret;
+
+    @Test
+    public void tokenShouldReturnHttpStatus503WhenHashingPoolIsFullButStillCheckClientSecret() throws Exception{
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> passwordEncoder.encode("running"));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> passwordEncoder.encode("queued"));
+        try {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (meterRegistry.get("executor.queued").tag("name", "passwordHashing").gauge().value() < 1
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+
+            // client authentication does not need the pool: a wrong secret is still told apart from overload
+            mockMvc.perform(post("/oauth2/token")
+                    .param("grant_type", "password")
+                    .param("username", "maria@gmail.com")
+                    .param("password", "123456")
+                    .with(httpBasic(clientId, "wrong-secret"))
+                    .accept("application/json;charset=UTF-8"))
+                .andExpect(status().isUnauthorized());
+
+            mockMvc.perform(post("/oauth2/token")
+                    .param("grant_type", "password")
+                    .param("username", "maria@gmail.com")
+                    .param("password", "123456")
+                    .with(httpBasic(clientId, clientSecret))
+                    .accept("application/json;charset=UTF-8"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.error").value("temporarily_unavailable"));
+        }
+        finally {
+            running.get(1, TimeUnit.MINUTES);
+            queued.get(1, TimeUnit.MINUTES);
+        }
+        assertThat(meterRegistry.get("dscommerce.password.hashing.rejected").counter().count()).isGreaterThanOrEqualTo(1.0);
+    }
+}
@@ -0,0 +1,67 @@
+package com.devsuperior.dscommerce.controllers.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.devsuperior.dscommerce.repositories.UserRepository;
+import com.devsuperior.dscommerce.util.TokenUtil;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class PasswordUpgradeIT {
+
+    private static final String LEGACY_HASH = "$2a$10$g2gG9Au8sQ.pup50FxDQwuAA0Dx0Hsu3fMRSfTmV2Q0D0j37NzCMy";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenUtil tokenUtil;
+
+    @SpyBean
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    public void loginShouldRehashLegacyPasswordAndKeepItValid() throws Exception{
+        // the hash as seeded by import.sql; other ITs may already have upgraded it in the shared database
+        userRepository.updatePasswordByEmail("alex@gmail.com", LEGACY_HASH);
+
+        tokenUtil.obtainAccessToken(mockMvc, "alex@gmail.com", "123456");
+
+        String upgraded = userRepository.findByEmail("alex@gmail.com").getPassword();
+        assertThat(upgraded).startsWith("{bcrypt}$2a$10$");
+        assertThat(passwordEncoder.matches("123456", upgraded)).isTrue();
+        assertThat(passwordEncoder.upgradeEncoding(upgraded)).isFalse();
+
+        String accessToken = tokenUtil.obtainAccessToken(mockMvc, "alex@gmail.com", "123456");
+        assertThat(accessToken).isNotBlank();
+        assertThat(userRepository.findByEmail("alex@gmail.com").getPassword()).isEqualTo(upgraded);
+    }
+
+    @Test
+    public void loginShouldIssueTokenAndKeepLegacyHashWhenRehashFails() throws Exception{
+        userRepository.updatePasswordByEmail("alex@gmail.com", LEGACY_HASH);
+        doThrow(new DataAccessResourceFailureException("database unavailable")).when(userRepository).updatePasswordByEmail(eq("alex@gmail.com"), anyString());
+
+        String accessToken = tokenUtil.obtainAccessToken(mockMvc, "alex@gmail.com", "123456");
+
+        assertThat(accessToken).isNotBlank();
+        assertThat(userRepository.findByEmail("alex@gmail.com").getPassword()).isEqualTo(LEGACY_HASH);
+    }
+}
@@ -15,6 +15,7 @@ import com.devsuperior.dscommerce.dtos.ProductDTO;
 import com.devsuperior.dscommerce.factories.ProductFactory;
 import com.devsuperior.dscommerce.util.TokenUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -106,6 +107,100 @@ public class ProductControllerIT {
             .andExpect(jsonPath("$.content[0].categories[0].name").value("Computadores"));
     }
 
+    @Test
+    public void findAllWithCategoriesShouldReturnPageFromDatabaseWhenSortIsNotIndexed() throws Exception{
+        mockMvc.perform(get("/products/categories?page=0&size=12&name=gamer&categoryIds=1,3&sort=imgUrl,desc")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.totalElements").value(21))
+            .andExpect(jsonPath("$.totalExact").value(true))
+            .andExpect(jsonPath("$.content.length()").value(12))
+            .andExpect(jsonPath("$.content[0].description").exists())
+            .andExpect(jsonPath("$.content[0].categories[0].id").value(3L))
+            .andExpect(jsonPath("$.content[0].categories[0].name").value("Computadores"));
+    }
+
+    @Test
+    public void findAllWithCategoriesShouldReturnTotalWhenPageIsBeyondLastProduct() throws Exception{
+        mockMvc.perform(get("/products/categories?page=5&size=12&name=gamer&categoryIds=1,3&sort=imgUrl")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.totalElements").value(21))
+            .andExpect(jsonPath("$.content").isEmpty());
+    }
+
+    @Test
+    public void findAllByCursorShouldReturnFirstSliceOrderedByNameWhenAfterIsBlank() throws Exception{
+        mockMvc.perform(get("/products?after=&size=3")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.totalElements").doesNotExist())
+            .andExpect(jsonPath("$.numberOfElements").value(3))
+            .andExpect(jsonPath("$.hasNext").value(true))
+            .andExpect(jsonPath("$.nextCursor").exists())
+            .andExpect(jsonPath("$.content[0].name").value("Macbook Pro"))
+            .andExpect(jsonPath("$.content[1].name").value("PC Gamer"))
+            .andExpect(jsonPath("$.content[2].name").value("PC Gamer Alfa"));
+    }
+
+    @Test
+    public void findAllByCursorShouldReturnNextSliceWhenAfterIsNextCursor() throws Exception{
+        String response = mockMvc.perform(get("/products?after=&size=3")
+            .accept(MediaType.APPLICATION_JSON))
+            .andReturn().getResponse().getContentAsString();
+        String nextCursor = JsonPath.read(response, "$.nextCursor");
+
+        mockMvc.perform(get("/products?after={after}&size=3",nextCursor)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content[0].id").value(24L))
+            .andExpect(jsonPath("$.content[0].name").value("PC Gamer Boo"))
+            .andExpect(jsonPath("$.content[1].name").value("PC Gamer Card"));
+    }
+
+    @Test
+    public void findAllByCursorShouldReturnHttpStatus400WhenAfterIsInvalid() throws Exception{
+        mockMvc.perform(get("/products?after=invalid&size=3")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void findAllByCursorShouldReturnHttpStatus400WhenSortIsNotNameAndId() throws Exception{
+        mockMvc.perform(get("/products?after=&size=3&sort=price,desc")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("Paginação por cursor só aceita sort=name,asc e sort=id,asc"));
+    }
+
+    @Test
+    public void findAllByCursorShouldAcceptSortMatchingCursorOrder() throws Exception{
+        mockMvc.perform(get("/products?after=&size=3&sort=name,asc&sort=id,asc")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content[0].name").value("Macbook Pro"));
+    }
+
+    @Test
+    public void findAllWithCategoriesByCursorShouldReturnHttpStatus400WhenSortIsNotNameAndId() throws Exception{
+        mockMvc.perform(get("/products/categories?after=&size=2&sort=name,desc")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void findAllWithCategoriesByCursorShouldReturnSliceWhenCategoryIdsAndNameAreNotBlank() throws Exception{
+        mockMvc.perform(get("/products/categories?after=&size=2&name=gamer&categoryIds=1,3")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.totalElements").doesNotExist())
+            .andExpect(jsonPath("$.hasNext").value(true))
+            .andExpect(jsonPath("$.content[0].id").value(4L))
+            .andExpect(jsonPath("$.content[0].name").value("PC Gamer"))
+            .andExpect(jsonPath("$.content[0].categories[0].name").value("Computadores"))
+            .andExpect(jsonPath("$.content[1].name").value("PC Gamer Alfa"));
+    }
+
     @Test
     public void findByIdShouldReturnHttpStatus200WhenIdExists() throws Exception{
         mockMvc.perform(get("/products/{id}",existingId)
@@ -119,6 +214,21 @@ public class ProductControllerIT {
             .andExpect(jsonPath("$.categories[0].name").value("Computadores"));
     }
 
+    // committed, so the first request really fills the product cache
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void findByIdShouldBuildLinksFromEachRequestHostWhenProductIsCached() throws Exception{
+        mockMvc.perform(get("http://shop-a.example/products/{id}",existingId)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$._links.self.href").value("http://shop-a.example/products/" + existingId));
+
+        mockMvc.perform(get("http://shop-b.example/products/{id}",existingId)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$._links.self.href").value("http://shop-b.example/products/" + existingId));
+    }
+
     @Test
     public void findByIdShouldReturnHttpStatus404WhenIdDoesNotExist() throws Exception{
         mockMvc.perform(get("/products/{id}",nonExistingId)
@@ -0,0 +1,165 @@
+package com.devsuperior.dscommerce.controllers.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.json.JacksonJsonParser;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.devsuperior.dscommerce.dtos.NewPasswordDTO;
+import com.devsuperior.dscommerce.entities.PasswordRecover;
+import com.devsuperior.dscommerce.events.UserChangedEvent;
+import com.devsuperior.dscommerce.repositories.PasswordRecoverRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class RefreshTokenIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtDecoder jwtDecoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PasswordRecoverRepository passwordRecoverRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${security.client-id}")
+    private String clientId;
+
+    @Value("${security.client-secret}")
+    private String clientSecret;
+
+    private Map<String, Object> passwordGrant;
+
+    @BeforeEach
+    public void setup() throws Exception{
+        String response = mockMvc.perform(post("/oauth2/token")
+                                .param("grant_type", "password")
+                                .param("username", "maria@gmail.com")
+                                .param("password", "123456")
+                                .with(httpBasic(clientId, clientSecret)))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getContentAsString();
+        passwordGrant = new JacksonJsonParser().parseMap(response);
+    }
+
+    @Test
+    public void passwordGrantShouldIssueRefreshToken(){
+        assertThat(passwordGrant.get("refresh_token")).asString().isNotBlank();
+    }
+
+    @Test
+    public void refreshGrantShouldIssueNewTokensForSameUser() throws Exception{
+        String refreshToken = passwordGrant.get("refresh_token").toString();
+
+        Map<String, Object> refreshed = parse(refresh(refreshToken).andExpect(status().isOk()));
+
+        String accessToken = refreshed.get("access_token").toString();
+        assertThat(accessToken).isNotEqualTo(passwordGrant.get("access_token"));
+        assertThat(refreshed.get("refresh_token")).isNotNull().isNotEqualTo(refreshToken);
+        Jwt jwt = jwtDecoder.decode(accessToken);
+        assertThat(jwt.getClaimAsString("username")).isEqualTo("maria@gmail.com");
+        assertThat(jwt.getClaimAsStringList("authorities")).containsExactlyInAnyOrderElementsOf(
+            jwtDecoder.decode(passwordGrant.get("access_token").toString()).getClaimAsStringList("authorities"));
+
+        mockMvc.perform(get("/users/me").header("Authorization", "Bearer " + accessToken))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.email").value("maria@gmail.com"));
+    }
+
+    @Test
+    public void refreshGrantShouldRejectRotatedRefreshToken() throws Exception{
+        String refreshToken = passwordGrant.get("refresh_token").toString();
+        refresh(refreshToken).andExpect(status().isOk());
+
+        refresh(refreshToken)
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("invalid_grant"));
+    }
+
+    @Test
+    public void refreshGrantShouldRejectRevokedRefreshToken() throws Exception{
+        String refreshToken = passwordGrant.get("refresh_token").toString();
+
+        mockMvc.perform(post("/oauth2/revoke")
+                        .param("token", refreshToken)
+                        .param("token_type_hint", "refresh_token")
+                        .with(httpBasic(clientId, clientSecret)))
+               .andExpect(status().isOk());
+
+        refresh(refreshToken)
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("invalid_grant"));
+    }
+
+    // committed for real: the revocation runs after the reset's transaction commits
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void refreshGrantShouldRejectRefreshTokenIssuedBeforePasswordReset() throws Exception{
+        String refreshToken = passwordGrant.get("refresh_token").toString();
+        String storedHash = jdbcTemplate.queryForObject("SELECT password FROM users WHERE email = ?", String.class, "maria@gmail.com");
+        String recoverToken = UUID.randomUUID().toString();
+        passwordRecoverRepository.save(new PasswordRecover(null, recoverToken, "maria@gmail.com", Instant.now().plusSeconds(60)));
+        try {
+            mockMvc.perform(put("/auth/new-password")
+                            .content(objectMapper.writeValueAsString(new NewPasswordDTO(recoverToken, "novaSenha123")))
+                            .contentType(MediaType.APPLICATION_JSON))
+                   .andExpect(status().isNoContent());
+
+            refresh(refreshToken)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("invalid_grant"));
+        }
+        finally {
+            jdbcTemplate.update("UPDATE users SET password = ? WHERE email = ?", storedHash, "maria@gmail.com");
+            jdbcTemplate.update("DELETE FROM password_recovers WHERE token = ?", recoverToken);
+            eventPublisher.publishEvent(new UserChangedEvent("maria@gmail.com"));
+        }
+    }
+
+    private ResultActions refresh(String refreshToken) throws Exception{
+        return mockMvc.perform(post("/oauth2/token")
+                               .param("grant_type", "refresh_token")
+                               .param("refresh_token", refreshToken)
+                               .with(httpBasic(clientId, clientSecret)));
+    }
+
+    private static Map<String, Object> parse(ResultActions result) throws Exception{
+        return new JacksonJsonParser().parseMap(result.andReturn().getResponse().getContentAsString());
+    }
+}
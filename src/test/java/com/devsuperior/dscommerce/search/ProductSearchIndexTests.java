@@ -0,0 +1,184 @@
+package com.devsuperior.dscommerce.search;
+
+import static com.devsuperior.dscommerce.factories.ProductFactory.PROD;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.devsuperior.dscommerce.entities.Category;
+import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductSearchIndexTests {
+
+    @InjectMocks
+    private ProductSearchIndex searchIndex;
+
+    @Mock
+    private ProductRepository repository;
+
+    private Product book;
+    private Product notebook;
+    private Product pcGamer;
+
+    @BeforeEach
+    public void setup() throws Exception{
+        book = PROD();
+
+        notebook = new Product(2L, "Macbook Pro", "Lorem ipsum dolor sit amet", 1250.0, "url");
+        notebook.getCategories().add(new Category(3L, "Computadores"));
+
+        pcGamer = new Product(3L, "PC Gamer", "Lorem ipsum dolor sit amet", 1200.0, "url");
+        pcGamer.getCategories().add(new Category(3L, "Computadores"));
+
+        ReflectionTestUtils.setField(searchIndex, "indexPath", "");
+        searchIndex.open();
+
+        when(repository.searchIdsAfter(eq(0L), any())).thenReturn(List.of(1L, 2L, 3L));
+        when(repository.searchProductsForIndex(List.of(1L, 2L, 3L))).thenReturn(List.of(book, notebook, pcGamer));
+        searchIndex.rebuild();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception{
+        searchIndex.close();
+    }
+
+    @Test
+    public void rebuildShouldMakeIndexReady(){
+        assertThat(searchIndex.isReady()).isTrue();
+    }
+
+    @Test
+    public void rebuildShouldPageFromLastIdOfPreviousBatch() throws Exception{
+        List<Long> firstBatch = LongStream.rangeClosed(1, 500).boxed().toList();
+        Product mouse = new Product(501L, "Mouse Gamer", "Lorem ipsum", 90.0, "url");
+        when(repository.searchIdsAfter(eq(0L), any())).thenReturn(firstBatch);
+        when(repository.searchIdsAfter(eq(500L), any())).thenReturn(List.of(501L));
+        when(repository.searchProductsForIndex(firstBatch)).thenReturn(List.of(book, notebook, pcGamer));
+        when(repository.searchProductsForIndex(List.of(501L))).thenReturn(List.of(mouse));
+
+        searchIndex.rebuild();
+
+        assertThat(searchIndex.search("", List.of(), PageRequest.of(0, 10)).getContent()).containsExactly(1L, 2L, 3L, 501L);
+    }
+
+    @Test
+    public void searchShouldReturnAllIdsOrderedByIdWhenNameIsBlank(){
+        Page<Long> sut = searchIndex.search("", List.of(), PageRequest.of(0, 10));
+
+        assertThat(sut.getTotalElements()).isEqualTo(3L);
+        assertThat(sut.getContent()).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    public void searchShouldMatchPartialWordsIgnoringCase(){
+        Page<Long> sut = searchIndex.search("BOOK", List.of(), PageRequest.of(0, 10));
+
+        assertThat(sut.getContent()).containsExactly(2L);
+    }
+
+    @Test
+    public void searchShouldMatchMiddleOfWordsLongerThanLargestGram(){
+        Product longName = new Product(4L, "Pneumonoultramicroscopicossilicovulcanoconiotico", "Lorem ipsum", 10.0, "url");
+        searchIndex.index(longName);
+
+        assertThat(searchIndex.search("ultramicroscopicossilicovulcano", List.of(), PageRequest.of(0, 10)).getContent()).containsExactly(4L);
+        assertThat(searchIndex.search("ultramicroscopicossilicovulcanx", List.of(), PageRequest.of(0, 10)).getContent()).isEmpty();
+    }
+
+    @Test
+    public void indexShouldMakeConcurrentWritesSearchableWhenEachCallReturns() throws Exception{
+        for (int round = 0; round < 50; round++) {
+            Product mouse = new Product(100L + 2 * round, "Mouse " + round, "Lorem ipsum", 90.0, "url");
+            Product keyboard = new Product(101L + 2 * round, "Teclado " + round, "Lorem ipsum", 150.0, "url");
+            CountDownLatch start = new CountDownLatch(1);
+            CompletableFuture<List<Long>> first = CompletableFuture.supplyAsync(() -> indexThenSearch(start, mouse, mouse.getName()));
+            CompletableFuture<List<Long>> second = CompletableFuture.supplyAsync(() -> indexThenSearch(start, keyboard, keyboard.getName()));
+            start.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).contains(mouse.getId());
+            assertThat(second.get(5, TimeUnit.SECONDS)).contains(keyboard.getId());
+        }
+    }
+
+    @Test
+    public void searchShouldNotMatchDescription(){
+        assertThat(searchIndex.search("ipsum", List.of(), PageRequest.of(0, 10)).getContent()).isEmpty();
+    }
+
+    @Test
+    public void indexShouldKeepProductWithoutCategoriesSearchable(){
+        Product uncategorized = new Product(4L, "Mouse Gamer", "Lorem ipsum", 90.0, "url");
+        searchIndex.index(uncategorized);
+
+        assertThat(searchIndex.search("gamer", List.of(), PageRequest.of(0, 10)).getContent()).containsExactly(3L, 4L);
+        assertThat(searchIndex.search("gamer", List.of(3L), PageRequest.of(0, 10)).getContent()).containsExactly(3L);
+    }
+
+    @Test
+    public void searchShouldFilterByCategoriesAndSortByName(){
+        Page<Long> sut = searchIndex.search("", List.of(3L), PageRequest.of(0, 10, Sort.by("name")));
+
+        assertThat(sut.getTotalElements()).isEqualTo(2L);
+        assertThat(sut.getContent()).containsExactly(2L, 3L);
+    }
+
+    @Test
+    public void searchShouldReturnRequestedPageAndExactTotal(){
+        Page<Long> sut = searchIndex.search("", List.of(), PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "price")));
+
+        assertThat(sut.getTotalElements()).isEqualTo(3L);
+        assertThat(sut.getContent()).containsExactly(1L);
+    }
+
+    @Test
+    public void indexShouldReplaceDocumentAndDeleteShouldRemoveIt(){
+        book.setName("The Hobbit");
+        searchIndex.index(book);
+
+        assertThat(searchIndex.search("hobbit", List.of(), PageRequest.of(0, 10)).getContent()).containsExactly(1L);
+        assertThat(searchIndex.search("lord", List.of(), PageRequest.of(0, 10)).getContent()).isEmpty();
+
+        searchIndex.delete(1L);
+
+        assertThat(searchIndex.search("hobbit", List.of(), PageRequest.of(0, 10)).getContent()).isEmpty();
+    }
+
+    @Test
+    public void supportsShouldBeFalseWhenSortPropertyIsNotIndexed(){
+        assertThat(searchIndex.supports(PageRequest.of(0, 10, Sort.by("imgUrl")))).isFalse();
+        assertThat(searchIndex.supports(PageRequest.of(0, 10, Sort.by("name")))).isTrue();
+    }
+
+    private List<Long> indexThenSearch(CountDownLatch start, Product product, String name){
+        try {
+            start.await();
+        }
+        catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        searchIndex.index(product);
+        return searchIndex.search(name, List.of(), PageRequest.of(0, 10)).getContent();
+    }
+}
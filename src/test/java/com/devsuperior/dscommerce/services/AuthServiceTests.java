@@ -25,6 +25,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.util.ReflectionTestUtils;
 
@@ -36,6 +37,7 @@ import com.devsuperior.dscommerce.repositories.PasswordRecoverRepository;
 import com.devsuperior.dscommerce.repositories.UserRepository;
 import com.devsuperior.dscommerce.services.exceptions.ForbiddenException;
 import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
+import com.devsuperior.dscommerce.util.CustomUserUtils;
 
 @ExtendWith(MockitoExtension.class)
 public class AuthServiceTests {
@@ -53,11 +55,17 @@ public class AuthServiceTests {
     private PasswordRecoverRepository passwordRecoverRepository;
 
     @Mock
-    private EmailService emailService;
+    private EmailOutboxService emailOutboxService;
 
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private CustomUserUtils customUserUtils;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private User admin;
     private User selfClient;
     private User otherClient;
@@ -90,7 +98,7 @@ public class AuthServiceTests {
 
         assertThatCode(() -> service.createRecoverToken(emailDTO)).doesNotThrowAnyException();
 
-        verify(emailService, times(1)).sendEmail(
+        verify(emailOutboxService, times(1)).enqueue(
             eq(selfClient.getEmail()),
             eq("Recuperação de Senha"),
             contains("Clique no link a seguir para criar uma nova senha:")
@@ -134,7 +142,7 @@ public class AuthServiceTests {
 
     @Test
     public void validateSelfOrAdminShouldDoNothingWhenAdminIsLogged(){
-        when(userService.authenticated()).thenReturn(admin);
+        when(customUserUtils.hasAuthority("ROLE_ADMIN")).thenReturn(true);
 
         Long userId = admin.getId();
 
@@ -143,7 +151,8 @@ public class AuthServiceTests {
 
     @Test
     public void validateSelfOrAdminShouldDoNothingWhenSelfIsLogged(){
-        when(userService.authenticated()).thenReturn(selfClient);
+        when(customUserUtils.hasAuthority("ROLE_ADMIN")).thenReturn(false);
+        when(userService.authenticatedId()).thenReturn(selfClient.getId());
 
         Long userId = selfClient.getId();
 
@@ -152,7 +161,8 @@ public class AuthServiceTests {
 
     @Test
     public void validateSelfOrAdminShouldThrowForbiddenExceptionWhenOtherClientIsLogged(){
-        when(userService.authenticated()).thenReturn(selfClient);
+        when(customUserUtils.hasAuthority("ROLE_ADMIN")).thenReturn(false);
+        when(userService.authenticatedId()).thenReturn(selfClient.getId());
 
         Long userId = otherClient.getId();
 
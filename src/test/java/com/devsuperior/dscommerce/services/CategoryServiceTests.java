@@ -15,7 +15,6 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
@@ -24,6 +23,9 @@ import com.devsuperior.dscommerce.dtos.ProductMinDTO;
 import com.devsuperior.dscommerce.entities.Category;
 import com.devsuperior.dscommerce.projections.ProductMinProjection;
 import com.devsuperior.dscommerce.repositories.CategoryRepository;
+import com.devsuperior.dscommerce.services.ProductCountService.CountKey;
+import com.devsuperior.dscommerce.services.ProductCountService.ProductCount;
+import com.devsuperior.dscommerce.services.ProductCountService.Scope;
 
 import static com.devsuperior.dscommerce.factories.CategoryFactory.CAT;
 
@@ -37,6 +39,9 @@ public class CategoryServiceTests {
     @Mock
     private CategoryRepository repository;
 
+    @Mock
+    private ProductCountService countService;
+
     private Category cat;
 
     private ProductMinProjection projection;
@@ -80,10 +85,10 @@ public class CategoryServiceTests {
 
     @Test
     public void testFindProductsByCategory() {
-        Page<ProductMinProjection> productPage = new PageImpl<>(List.of(projection));
         Pageable pageable = PageRequest.of(0, 10);
 
-        when(repository.findProductsByCategory(eq(1L), any(Pageable.class))).thenReturn(productPage);
+        when(repository.findProductsByCategory(eq(1L), any(Pageable.class))).thenReturn(List.of(projection));
+        when(countService.count(eq(CountKey.of(Scope.CATEGORY, "", List.of(1L))), eq(pageable), eq(1), any())).thenReturn(new ProductCount(1L, true));
 
         Page<ProductMinDTO> result = service.findProductsByCategory(1L, pageable);
 
@@ -92,6 +97,7 @@ public class CategoryServiceTests {
         assertThat(result.getContent().get(0).getName()).isEqualTo("product");
         assertThat(result.getContent().get(0).getPrice()).isEqualTo(10.0);
         assertThat(result.getContent().get(0).getImgUrl()).isEqualTo("url");
+        assertThat(result.getTotalElements()).isEqualTo(1L);
     }
 
 }
@@ -0,0 +1,117 @@
+package com.devsuperior.dscommerce.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.devsuperior.dscommerce.entities.EmailOutbox;
+import com.devsuperior.dscommerce.entities.EmailOutboxStatus;
+import com.devsuperior.dscommerce.repositories.EmailOutboxRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class EmailOutboxServiceTests {
+
+    @InjectMocks
+    private EmailOutboxService service;
+
+    @Mock
+    private EmailOutboxRepository repository;
+
+    private EmailOutbox sent;
+    private EmailOutbox retried;
+    private EmailOutbox lastAttempt;
+
+    @BeforeEach
+    public void setup() throws Exception{
+        ReflectionTestUtils.setField(service, "batchSize", 50);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "backoffSeconds", 30L);
+        ReflectionTestUtils.setField(service, "leaseSeconds", 300L);
+        ReflectionTestUtils.setField(service, "sentRetentionSeconds", 3600L);
+        ReflectionTestUtils.setField(service, "deadRetentionSeconds", 86400L);
+
+        Instant created = Instant.now().minusSeconds(60);
+        sent = outbox(1L, 0, created);
+        retried = outbox(2L, 0, created);
+        lastAttempt = outbox(3L, 2, created);
+    }
+
+    @Test
+    public void claimDueShouldLeaseClaimedRows(){
+        when(repository.searchDue(eq(EmailOutboxStatus.PENDING), any(Instant.class), eq(PageRequest.of(0, 50)))).thenReturn(List.of(sent, retried));
+        Instant before = Instant.now();
+
+        List<EmailOutbox> claimed = service.claimDue();
+
+        assertThat(claimed).containsExactly(sent, retried);
+        assertThat(claimed).allMatch(x -> !x.getNextAttemptAt().isBefore(before.plusSeconds(300)));
+    }
+
+    @Test
+    public void completeShouldMarkSentAndRescheduleOrDeadLetterFailures(){
+        when(repository.findAllById(List.of(1L))).thenReturn(List.of(sent));
+        when(repository.findAllById(Set.of(2L, 3L))).thenReturn(List.of(retried, lastAttempt));
+        Instant before = Instant.now();
+
+        service.complete(List.of(1L), Map.of(2L, "421 try again later", 3L, "550 mailbox unavailable"));
+
+        assertThat(sent.getStatus()).isEqualTo(EmailOutboxStatus.SENT);
+        assertThat(sent.getSentAt()).isNotNull();
+        assertThat(sent.getAttempts()).isEqualTo(1);
+
+        assertThat(retried.getStatus()).isEqualTo(EmailOutboxStatus.PENDING);
+        assertThat(retried.getAttempts()).isEqualTo(1);
+        assertThat(retried.getLastError()).isEqualTo("421 try again later");
+        assertThat(retried.getNextAttemptAt()).isAfterOrEqualTo(before.plusSeconds(30));
+
+        assertThat(lastAttempt.getStatus()).isEqualTo(EmailOutboxStatus.DEAD);
+        assertThat(lastAttempt.getAttempts()).isEqualTo(3);
+        assertThat(lastAttempt.getLastError()).isEqualTo("550 mailbox unavailable");
+    }
+
+    @Test
+    public void purgeShouldDeleteSentAndDeadRowsPastTheirRetention(){
+        ArgumentCaptor<Instant> sentBefore = ArgumentCaptor.forClass(Instant.class);
+        ArgumentCaptor<Instant> deadBefore = ArgumentCaptor.forClass(Instant.class);
+        when(repository.deleteExpired(eq(EmailOutboxStatus.SENT), sentBefore.capture(), eq(EmailOutboxStatus.DEAD), deadBefore.capture())).thenReturn(2);
+        Instant before = Instant.now();
+
+        int purged = service.purge();
+
+        assertThat(purged).isEqualTo(2);
+        assertThat(sentBefore.getValue()).isBetween(before.minusSeconds(3600), Instant.now().minusSeconds(3600));
+        assertThat(deadBefore.getValue()).isBetween(before.minusSeconds(86400), Instant.now().minusSeconds(86400));
+    }
+
+    @Test
+    public void backoffShouldDoublePerAttemptUpToOneHour(){
+        assertThat(service.backoff(1)).isEqualTo(Duration.ofSeconds(30));
+        assertThat(service.backoff(2)).isEqualTo(Duration.ofSeconds(60));
+        assertThat(service.backoff(4)).isEqualTo(Duration.ofSeconds(240));
+        assertThat(service.backoff(30)).isEqualTo(Duration.ofHours(1));
+    }
+
+    private static EmailOutbox outbox(Long id, int attempts, Instant created){
+        EmailOutbox outbox = new EmailOutbox("maria@gmail.com", "Recuperação de Senha", "body", created);
+        outbox.setId(id);
+        outbox.setAttempts(attempts);
+        return outbox;
+    }
+}
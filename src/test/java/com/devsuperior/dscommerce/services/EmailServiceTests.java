@@ -1,25 +1,26 @@
 package com.devsuperior.dscommerce.services;
 
-import static org.assertj.core.api.Assertions.assertThatCode;
-import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.doNothing;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.util.List;
+import java.util.Map;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.MailAuthenticationException;
 import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.test.util.ReflectionTestUtils;
 
-import com.devsuperior.dscommerce.services.exceptions.EmailException;
+import jakarta.mail.MessagingException;
 
 
 @ExtendWith(MockitoExtension.class)
@@ -35,7 +36,6 @@ public class EmailServiceTests {
     private String nonExistingEmail;
 
     private SimpleMailMessage validMessage;
-    private SimpleMailMessage invalidMessage;
 
     @BeforeEach
     public void setup() throws Exception{
@@ -52,22 +52,33 @@ public class EmailServiceTests {
     }
 
     @Test
-    public void sendEmailShouldThrowNoExceptionWhenEmailExists(){
-        doNothing().when(emailSender).send(validMessage);
+    public void sendShouldSendBatchInOneCallAndReturnNoFailures(){
+        SimpleMailMessage other = service.message(nonExistingEmail, "subject", "test");
+
+        Map<SimpleMailMessage, Exception> failed = service.send(List.of(validMessage, other));
+
+        assertThat(failed).isEmpty();
+        verify(emailSender, times(1)).send(validMessage, other);
+    }
+
+    @Test
+    public void sendShouldReturnOnlyRejectedMessagesWhenServerRejectsSome(){
+        SimpleMailMessage other = service.message(nonExistingEmail, "subject", "test");
+        doThrow(new MailSendException(Map.of(other, new MessagingException("550 mailbox unavailable"))))
+            .when(emailSender).send(validMessage, other);
+
+        Map<SimpleMailMessage, Exception> failed = service.send(List.of(validMessage, other));
 
-        assertThatCode(() -> service.sendEmail(existingEmail,validMessage.getSubject(),validMessage.getText()));
-        verify(emailSender, times(1)).send(validMessage);
+        assertThat(failed).containsOnlyKeys(other);
     }
 
     @Test
-    public void sendEmailShouldThrowEmailExceptionWhenEmailDoesNotExist(){
-        invalidMessage = validMessage;
-        invalidMessage.setTo(nonExistingEmail);
-        doThrow(MailSendException.class).when(emailSender).send(any(SimpleMailMessage.class));
+    public void sendShouldReturnEveryMessageWhenServerIsUnreachable(){
+        SimpleMailMessage other = service.message(nonExistingEmail, "subject", "test");
+        doThrow(new MailAuthenticationException("535 authentication failed")).when(emailSender).send(validMessage, other);
 
-        assertThrows(EmailException.class, () -> {
-            service.sendEmail(nonExistingEmail, "Subject", "Body");
-        });
+        Map<SimpleMailMessage, Exception> failed = service.send(List.of(validMessage, other));
 
+        assertThat(failed).containsOnlyKeys(validMessage, other);
     }
 }
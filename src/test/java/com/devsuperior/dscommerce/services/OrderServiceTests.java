@@ -6,11 +6,18 @@ import static com.devsuperior.dscommerce.factories.OrderFactory.ORDER;
 import static com.devsuperior.dscommerce.factories.ProductFactory.PROD;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import java.util.ArrayList;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -21,21 +28,32 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
 import com.devsuperior.dscommerce.dtos.OrderDTO;
 import com.devsuperior.dscommerce.entities.Order;
 import com.devsuperior.dscommerce.entities.OrderItem;
+import com.devsuperior.dscommerce.entities.OrderStatus;
 import com.devsuperior.dscommerce.entities.Product;
 import com.devsuperior.dscommerce.entities.User;
+import com.devsuperior.dscommerce.projections.ProductQuantityProjection;
 import com.devsuperior.dscommerce.repositories.OrderItemRepository;
 import com.devsuperior.dscommerce.repositories.OrderRepository;
 import com.devsuperior.dscommerce.repositories.ProductRepository;
 import com.devsuperior.dscommerce.services.exceptions.ForbiddenException;
+import com.devsuperior.dscommerce.services.exceptions.InsufficientStockException;
+import com.devsuperior.dscommerce.services.exceptions.InvalidOrderStatusException;
 import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
+import com.devsuperior.dscommerce.util.CustomUserUtils;
 
-import jakarta.persistence.EntityNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 @ExtendWith(MockitoExtension.class)
 public class OrderServiceTests {
@@ -58,6 +76,12 @@ public class OrderServiceTests {
     @Mock
     private UserService userService;
 
+    @Mock
+    private CustomUserUtils customUserUtils;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     private Long existingId;
     private Long nonExistingId;
 
@@ -85,7 +109,7 @@ public class OrderServiceTests {
 
     @Test
     public void findByIdShouldReturnOrderDTOWhenIdExistsAndAdminIsLogged(){
-        when(repository.findById(existingId)).thenReturn(Optional.of(order));
+        when(repository.searchOrderWithItems(existingId)).thenReturn(Optional.of(order));
         doNothing().when(authService).validateSelfOrAdmin(anyLong());
 
         OrderDTO result = service.findById(existingId);
@@ -97,7 +121,7 @@ public class OrderServiceTests {
 
     @Test
     public void findByIdShouldDoNothingWhenIdExistsAndSelfClientIsLogged(){
-        when(repository.findById(existingId)).thenReturn(Optional.of(order));
+        when(repository.searchOrderWithItems(existingId)).thenReturn(Optional.of(order));
         doNothing().when(authService).validateSelfOrAdmin(anyLong());
 
         OrderDTO result = service.findById(existingId);
@@ -108,7 +132,7 @@ public class OrderServiceTests {
 
     @Test
     public void findByIdShouldThrowForbiddenExceptionWhenIdExistsButLoggedUserIsNotAdminOrSelf(){
-        when(repository.findById(existingId)).thenReturn(Optional.of(order));
+        when(repository.searchOrderWithItems(existingId)).thenReturn(Optional.of(order));
         doThrow(ForbiddenException.class).when(authService).validateSelfOrAdmin(anyLong());
 
         assertThatThrownBy(() -> service.findById(existingId)).isInstanceOf(ForbiddenException.class);
@@ -116,17 +140,41 @@ public class OrderServiceTests {
 
     @Test
     public void findByIdShouldThrowResourceNotFoundExceptionWhenIdDoesNotExist(){
-        when(repository.findById(nonExistingId)).thenReturn(Optional.empty());
+        when(repository.searchOrderWithItems(nonExistingId)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> service.findById(nonExistingId)).isInstanceOf(ResourceNotFoundException.class);
     }
 
+    @Test
+    public void findMineShouldReturnPageInIdOrderWhenClientIsLogged(){
+        Pageable pageable = PageRequest.of(0, 2);
+        Order older = new Order(3L, Instant.now().minusSeconds(60), OrderStatus.PAID, client, null);
+        when(userService.authenticatedId()).thenReturn(client.getId());
+        when(repository.searchIdsByClient(client.getId(), pageable)).thenReturn(new PageImpl<>(List.of(existingId, 3L), pageable, 5));
+        when(repository.searchOrdersWithItems(List.of(existingId, 3L))).thenReturn(List.of(older, order));
+
+        Page<OrderDTO> result = service.findMine(pageable);
+
+        assertThat(result.getContent()).extracting(OrderDTO::getId).containsExactly(existingId, 3L);
+        assertThat(result.getTotalElements()).isEqualTo(5L);
+    }
+
+    @Test
+    public void findAllShouldNotLoadOrdersWhenNoIdMatchesFilter(){
+        Pageable pageable = PageRequest.of(0, 10);
+        when(repository.searchIds(OrderStatus.CANCELED, null, null, pageable)).thenReturn(Page.empty(pageable));
+
+        Page<OrderDTO> result = service.findAll(OrderStatus.CANCELED, null, null, pageable);
+
+        assertThat(result).isEmpty();
+        verify(repository, never()).searchOrdersWithItems(any());
+    }
+
     @Test
     public void insertShouldReturnOrderDTOWhenClientIsLogged(){
         when(userService.authenticated()).thenReturn(client);
-        when(productRepository.getReferenceById(existingId)).thenReturn(product);
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
         when(repository.save(any(Order.class))).thenReturn(order);
-        when(orderItemRepository.saveAll(any())).thenReturn(new ArrayList<>(order.getItems()));
         
         OrderDTO result = service.insert(dto);
 
@@ -138,9 +186,8 @@ public class OrderServiceTests {
     @Test
     public void insertShouldReturnOrderDTOWhenAdminIsLogged(){
         when(userService.authenticated()).thenReturn(admin);
-        when(productRepository.getReferenceById(existingId)).thenReturn(product);
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
         when(repository.save(any(Order.class))).thenReturn(order);
-        when(orderItemRepository.saveAll(any())).thenReturn(new ArrayList<>(order.getItems()));
         
         OrderDTO result = service.insert(dto);
 
@@ -157,9 +204,102 @@ public class OrderServiceTests {
     }
 
     @Test
-    public void insertShouldThrowEntityNotFoundExceptionWhenProductIdDoesNotExist(){
+    public void insertShouldThrowInsufficientStockExceptionAndNotSaveWhenStockIsNotEnough(){
         when(userService.authenticated()).thenReturn(client);
-        when(productRepository.getReferenceById(nonExistingId)).thenThrow(EntityNotFoundException.class);
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
+        when(productRepository.reserveStock(Map.of(product.getId(), 1))).thenReturn(List.of(product.getId()));
+
+        assertThatThrownBy(() -> service.insert(dto)).isInstanceOf(InsufficientStockException.class);
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    public void cancelShouldReleaseStockWhenOrderIsCancelable(){
+        when(repository.searchOrderWithItems(existingId)).thenReturn(Optional.of(order));
+        when(repository.updateStatus(eq(existingId), anyCollection(), eq(OrderStatus.CANCELED))).thenReturn(1);
+
+        OrderDTO result = service.cancel(existingId);
+
+        assertThat(result.getStatus()).isEqualTo(OrderStatus.CANCELED);
+        verify(productRepository).releaseStock(Map.of(product.getId(), 1));
+    }
+
+    @Test
+    public void cancelShouldOnlyMoveWaitingPaymentOrdersWhenClientIsLogged(){
+        when(repository.searchOrderWithItems(existingId)).thenReturn(Optional.of(order));
+        when(customUserUtils.hasAuthority("ROLE_ADMIN")).thenReturn(false);
+
+        assertThatThrownBy(() -> service.cancel(existingId)).isInstanceOf(InvalidOrderStatusException.class);
+        verify(repository).updateStatus(existingId, EnumSet.of(OrderStatus.WAITING_PAYMENT), OrderStatus.CANCELED);
+        verify(productRepository, never()).releaseStock(any());
+    }
+
+    @Test
+    public void cancelShouldMoveEveryCancelableOrderWhenAdminIsLogged(){
+        when(repository.searchOrderWithItems(existingId)).thenReturn(Optional.of(order));
+        when(customUserUtils.hasAuthority("ROLE_ADMIN")).thenReturn(true);
+        when(repository.updateStatus(existingId, OrderStatus.CANCELED.previous(), OrderStatus.CANCELED)).thenReturn(1);
+
+        OrderDTO result = service.cancel(existingId);
+
+        assertThat(result.getStatus()).isEqualTo(OrderStatus.CANCELED);
+        verify(productRepository).releaseStock(Map.of(product.getId(), 1));
+    }
+
+    @Test
+    public void cancelShouldThrowInvalidOrderStatusExceptionAndKeepStockWhenOrderIsNotCancelable(){
+        when(repository.searchOrderWithItems(existingId)).thenReturn(Optional.of(order));
+        when(repository.updateStatus(eq(existingId), anyCollection(), eq(OrderStatus.CANCELED))).thenReturn(0);
+
+        assertThatThrownBy(() -> service.cancel(existingId)).isInstanceOf(InvalidOrderStatusException.class);
+        verify(productRepository, never()).releaseStock(any());
+    }
+
+    @Test
+    public void updateStatusShouldRecordPaymentWhenOrderIsPaid(){
+        when(repository.searchOrderWithItems(existingId)).thenReturn(Optional.of(order));
+        when(repository.updateStatus(existingId, OrderStatus.PAID.previous(), OrderStatus.PAID)).thenReturn(1);
+
+        OrderDTO result = service.updateStatus(existingId, OrderStatus.PAID);
+
+        assertThat(result.getStatus()).isEqualTo(OrderStatus.PAID);
+        assertThat(result.getPayment()).isNotNull();
+        verify(repository).insertPayments(eq(List.of(existingId)), any());
+    }
+
+    @Test
+    public void updateStatusShouldThrowInvalidOrderStatusExceptionWhenTransitionIsNotAllowed(){
+        when(repository.searchOrderWithItems(existingId)).thenReturn(Optional.of(order));
+
+        assertThatThrownBy(() -> service.updateStatus(existingId, OrderStatus.SHIPPED)).isInstanceOf(InvalidOrderStatusException.class);
+        verify(repository, never()).updateStatus(anyLong(), anyCollection(), any());
+    }
+
+    @Test
+    public void updateStatusesShouldReleaseStockOfMovedOrdersOnlyWhenCanceling(){
+        List<Long> ids = List.of(1L, 2L, 3L);
+        when(repository.lockIdsInStatus(ids, OrderStatus.CANCELED.previous())).thenReturn(List.of(1L, 3L));
+        when(orderItemRepository.sumQuantitiesByProduct(List.of(1L, 3L))).thenReturn(List.of(quantity(product.getId(), 5L)));
+
+        List<Long> result = service.updateStatuses(ids, OrderStatus.CANCELED);
+
+        assertThat(result).containsExactly(1L, 3L);
+        verify(repository).updateStatuses(List.of(1L, 3L), OrderStatus.CANCELED.previous(), OrderStatus.CANCELED);
+        verify(productRepository).releaseStock(Map.of(product.getId(), 5));
+    }
+
+    @Test
+    public void updateStatusesShouldNotUpdateWhenNoOrderCanMove(){
+        when(repository.lockIdsInStatus(List.of(2L), OrderStatus.SHIPPED.previous())).thenReturn(List.of());
+
+        assertThat(service.updateStatuses(List.of(2L), OrderStatus.SHIPPED)).isEmpty();
+        verify(repository, never()).updateStatuses(anyCollection(), anyCollection(), any());
+    }
+
+    @Test
+    public void insertShouldThrowResourceNotFoundExceptionWhenProductIdDoesNotExist(){
+        when(userService.authenticated()).thenReturn(client);
+        when(productRepository.findAllById(any())).thenReturn(List.of());
 
         product.setId(nonExistingId);
         OrderItem oi = new OrderItem(order, product, 1, product.getPrice());
@@ -167,7 +307,14 @@ public class OrderServiceTests {
         order.getItems().add(oi);
         dto = new OrderDTO(order);
 
-        assertThatThrownBy(() -> service.insert(dto)).isInstanceOf(EntityNotFoundException.class);
+        assertThatThrownBy(() -> service.insert(dto)).isInstanceOf(ResourceNotFoundException.class);
+        verify(repository, never()).save(any());
     }
 
+    private static ProductQuantityProjection quantity(Long productId, Long quantity){
+        return new ProductQuantityProjection() {
+            public Long getProductId() { return productId; }
+            public Long getQuantity() { return quantity; }
+        };
+    }
 }
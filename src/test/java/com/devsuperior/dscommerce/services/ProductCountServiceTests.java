@@ -0,0 +1,73 @@
+package com.devsuperior.dscommerce.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.devsuperior.dscommerce.config.CacheConfig;
+import com.devsuperior.dscommerce.services.ProductCountService.CountKey;
+import com.devsuperior.dscommerce.services.ProductCountService.ProductCount;
+import com.devsuperior.dscommerce.services.ProductCountService.Scope;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductCountServiceTests {
+
+    @InjectMocks
+    private ProductCountService service;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    private CountKey key;
+    private AtomicInteger countQueries;
+
+    @BeforeEach
+    public void setup() throws Exception{
+        ReflectionTestUtils.setField(service, "estimateThreshold", 100L);
+        key = CountKey.of(Scope.CATEGORIES, " Gamer ", List.of(3L, 1L));
+        countQueries = new AtomicInteger();
+    }
+
+    @Test
+    public void countShouldNotQueryWhenPageIsPartiallyFilled(){
+        ProductCount sut = service.count(key, PageRequest.of(2, 10), 4, limit -> countQueries.incrementAndGet());
+
+        assertThat(sut).isEqualTo(new ProductCount(24L, true));
+        assertThat(countQueries).hasValue(0);
+    }
+
+    @Test
+    public void countShouldReuseCachedTotalForSameFilter(){
+        when(cacheManager.getCache(CacheConfig.PRODUCT_COUNTS)).thenReturn(new ConcurrentMapCache(CacheConfig.PRODUCT_COUNTS));
+
+        service.count(key, PageRequest.of(0, 10), 10, limit -> { countQueries.incrementAndGet(); return 42L; });
+        ProductCount sut = service.count(CountKey.of(Scope.CATEGORIES, "gamer", List.of(1L, 3L)), PageRequest.of(1, 10), 10,
+                                         limit -> { countQueries.incrementAndGet(); return 42L; });
+
+        assertThat(sut).isEqualTo(new ProductCount(42L, true));
+        assertThat(countQueries).hasValue(1);
+    }
+
+    @Test
+    public void countShouldReturnEstimateWhenTotalPassesThreshold(){
+        when(cacheManager.getCache(CacheConfig.PRODUCT_COUNTS)).thenReturn(new ConcurrentMapCache(CacheConfig.PRODUCT_COUNTS));
+
+        ProductCount sut = service.count(key, PageRequest.of(0, 10), 10, limit -> limit);
+
+        assertThat(sut.total()).isEqualTo(100L);
+        assertThat(sut.exact()).isFalse();
+    }
+}
@@ -7,8 +7,13 @@ import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
@@ -20,22 +25,42 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
+import com.devsuperior.dscommerce.config.CacheConfig;
+import com.devsuperior.dscommerce.dtos.CategoryDTO;
+import com.devsuperior.dscommerce.dtos.CountedPageDTO;
+import com.devsuperior.dscommerce.dtos.CursorSliceDTO;
 import com.devsuperior.dscommerce.dtos.ProductDTO;
 import com.devsuperior.dscommerce.dtos.ProductMinDTO;
 import com.devsuperior.dscommerce.entities.Category;
 import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.events.ProductChangedEvent;
+import com.devsuperior.dscommerce.projections.ProductCategoryProjection;
+import com.devsuperior.dscommerce.projections.ProductMinProjection;
 import com.devsuperior.dscommerce.projections.ProductProjection;
 import com.devsuperior.dscommerce.repositories.CategoryRepository;
 import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.search.ProductSearchIndex;
+import com.devsuperior.dscommerce.services.ProductCountService.CountKey;
+import com.devsuperior.dscommerce.services.ProductCountService.ProductCount;
+import com.devsuperior.dscommerce.services.ProductCountService.Scope;
 import com.devsuperior.dscommerce.services.exceptions.DatabaseException;
+import com.devsuperior.dscommerce.services.exceptions.InvalidCursorException;
 import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
+import com.devsuperior.dscommerce.services.exceptions.UnsupportedSortException;
+import com.devsuperior.dscommerce.util.CacheGenerations;
+import com.devsuperior.dscommerce.util.KeysetCursor;
 
 import jakarta.persistence.EntityNotFoundException;
 
@@ -51,6 +76,21 @@ public class ProductServiceTests {
     @Mock
     private CategoryRepository categoryRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ProductSearchIndex searchIndex;
+
+    @Mock
+    private ProductCountService countService;
+
+    @Spy
+    private CacheManager cacheManager = new ConcurrentMapCacheManager();
+
+    @Spy
+    private CacheGenerations cacheGenerations = new CacheGenerations();
+
     private Long existingId;
     private Long nonExistingId;
     private Long dependentId;
@@ -60,6 +100,7 @@ public class ProductServiceTests {
     private Category cat;
 
     private ProductProjection projection;
+    private ProductCategoryProjection row;
 
     @BeforeEach
     public void setup() throws Exception{
@@ -82,6 +123,43 @@ public class ProductServiceTests {
                 return "projection";
             }
         };
+
+        row = new ProductCategoryProjection() {
+            @Override
+            public Long getId(){
+                return prod.getId();
+            }
+
+            @Override
+            public String getName(){
+                return prod.getName();
+            }
+
+            @Override
+            public String getDescription(){
+                return prod.getDescription();
+            }
+
+            @Override
+            public Double getPrice(){
+                return prod.getPrice();
+            }
+
+            @Override
+            public String getImgUrl(){
+                return prod.getImgUrl();
+            }
+
+            @Override
+            public Long getCategoryId(){
+                return cat.getId();
+            }
+
+            @Override
+            public String getCategoryName(){
+                return cat.getName();
+            }
+        };
     }
 
     @Test
@@ -98,6 +176,38 @@ public class ProductServiceTests {
         assertThat(sut.getImgUrl()).isEqualTo(prod.getImgUrl());
     }
 
+    @Test
+    public void findByIdShouldLoadProductOnceAndAddLinksToEachCopy(){
+        when(repository.findById(existingId)).thenReturn(Optional.of(prod));
+
+        ProductDTO first = service.findById(existingId);
+        ProductDTO second = service.findById(existingId);
+
+        verify(repository, times(1)).findById(existingId);
+        assertThat(second).isNotSameAs(first);
+        assertThat(first.getLinks()).hasSize(2);
+        assertThat(second.getLinks()).hasSize(2);
+        assertThat(second.getName()).isEqualTo(prod.getName());
+    }
+
+    @Test
+    public void findByIdShouldNotKeepProductReadBeforeUpdateCommitted(){
+        Product updated = PROD();
+        updated.setName("Updated");
+        when(repository.findById(existingId)).thenAnswer(invocation -> {
+            // the load has read the old row; an update now commits and ProductCacheListener evicts
+            cacheGenerations.evict(cacheManager.getCache(CacheConfig.PRODUCTS), existingId);
+            return Optional.of(prod);
+        }).thenReturn(Optional.of(updated));
+
+        ProductDTO stale = service.findById(existingId);
+        ProductDTO next = service.findById(existingId);
+
+        assertThat(stale.getName()).isEqualTo(prod.getName());
+        assertThat(next.getName()).isEqualTo("Updated");
+        verify(repository, times(2)).findById(existingId);
+    }
+
     @Test
     public void findByIdShouldThrowResourceNotFoundExceptionWhenIdDoesNotExist(){
         when(repository.findById(nonExistingId)).thenReturn(Optional.empty());
@@ -106,11 +216,11 @@ public class ProductServiceTests {
 
     @Test
     public void findAllShouldReturnAllProductMinDTOPaged(){
-        Page<Product> page = new PageImpl<>(List.of(prod));
         Pageable pageable = PageRequest.of(0, 10);
         String name = "prod";
 
-        when(repository.searchByName(name,pageable)).thenReturn(page);
+        when(repository.searchByName(name,pageable)).thenReturn(List.of(prod));
+        when(countService.count(any(), eq(pageable), eq(1), any())).thenReturn(new ProductCount(1L, true));
 
         Page<ProductMinDTO> sut = service.findAll(name, pageable);
 
@@ -123,11 +233,11 @@ public class ProductServiceTests {
 
     @Test
     public void findAllShouldReturnEmptyPageWhenNameDoesNotExist(){
-        Page<Product> page = new PageImpl<>(List.of());
         Pageable pageable = PageRequest.of(0, 10);
         String name = "isdfhoifhasiohgdsiogai";
 
-        when(repository.searchByName(name,pageable)).thenReturn(page);
+        when(repository.searchByName(name,pageable)).thenReturn(List.of());
+        when(countService.count(any(), eq(pageable), eq(0), any())).thenReturn(new ProductCount(0L, true));
 
         Page<ProductMinDTO> sut = service.findAll(name, pageable);
 
@@ -135,15 +245,133 @@ public class ProductServiceTests {
     }
 
     @Test
-    public void searchProductsWithCategoriesShouldReturnPagedProductDTOWhenCategoryIdIsNotBlank(){
+    public void findAllShouldResolveIdsFromSearchIndexWhenIndexSupportsPageable(){
+        Pageable pageable = PageRequest.of(0, 10);
+        String name = "lord";
+        ProductMinProjection min = new ProductMinProjection() {
+            @Override
+            public Long getId(){
+                return prod.getId();
+            }
+
+            @Override
+            public String getName(){
+                return prod.getName();
+            }
+
+            @Override
+            public Double getPrice(){
+                return prod.getPrice();
+            }
+
+            @Override
+            public String getImgUrl(){
+                return prod.getImgUrl();
+            }
+        };
+
+        when(searchIndex.supports(pageable)).thenReturn(true);
+        when(searchIndex.search(name, List.of(), pageable)).thenReturn(new PageImpl<>(List.of(1L), pageable, 1));
+        when(repository.searchProductsMin(List.of(1L))).thenReturn(List.of(min));
+
+        Page<ProductMinDTO> sut = service.findAll(name, pageable);
+
+        assertThat(sut.getTotalElements()).isEqualTo(1L);
+        assertThat(sut.getContent().get(0).getId()).isEqualTo(prod.getId());
+        assertThat(sut.getContent().get(0).getName()).isEqualTo(prod.getName());
+    }
+
+    @Test
+    public void searchProductsWithCategoriesShouldResolveIdsFromSearchIndexWhenIndexSupportsPageable(){
         List<Long> ids = Arrays.asList(1L,2L,3L);
         Pageable pageable = PageRequest.of(0, 10);
+        String name = "lord";
+
+        when(searchIndex.supports(pageable)).thenReturn(true);
+        when(searchIndex.search(name, ids, pageable)).thenReturn(new PageImpl<>(List.of(1L), pageable, 1));
+        when(repository.searchProductRowsWithCategories(List.of(1L))).thenReturn(List.of(row));
+
+        Page<ProductDTO> sut = service.searchProductsWithCategories("1,2,3", name, pageable);
+
+        assertThat(sut.getTotalElements()).isEqualTo(1L);
+        assertThat(sut.getContent().get(0).getName()).isEqualTo(dto.getName());
+        assertThat(sut.getContent().get(0).getCategories().get(0).getName()).isEqualTo(dto.getCategories().get(0).getName());
+    }
+
+    @Test
+    public void findAllByCursorShouldReturnSliceWithNextCursorWhenThereAreMoreResults(){
+        Product other = new Product(2L, "Zeta", "Lorem ipsum dolor", 10.0, "url");
+        String name = "";
+
+        when(repository.searchByNameAfter(name, "", 0L, PageRequest.of(0, 2))).thenReturn(List.of(prod, other));
+
+        CursorSliceDTO<ProductMinDTO> sut = service.findAllByCursor(name, "", PageRequest.of(0, 1));
+
+        assertThat(sut.getContent()).hasSize(1);
+        assertThat(sut.getContent().get(0).getId()).isEqualTo(prod.getId());
+        assertThat(sut.isHasNext()).isTrue();
+        assertThat(KeysetCursor.decode(sut.getNextCursor()).getId()).isEqualTo(prod.getId());
+        assertThat(KeysetCursor.decode(sut.getNextCursor()).getKey()).isEqualTo(prod.getName());
+    }
+
+    @Test
+    public void findAllByCursorShouldReturnLastSliceWithoutNextCursorWhenThereAreNoMoreResults(){
+        KeysetCursor after = new KeysetCursor("Macbook Pro", 3L);
+        String name = "";
+
+        when(repository.searchByNameAfter(name, after.getKey(), after.getId(), PageRequest.of(0, 11))).thenReturn(List.of(prod));
+
+        CursorSliceDTO<ProductMinDTO> sut = service.findAllByCursor(name, after.encode(), PageRequest.of(0, 10));
+
+        assertThat(sut.getContent()).hasSize(1);
+        assertThat(sut.isHasNext()).isFalse();
+        assertThat(sut.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void findAllByCursorShouldThrowInvalidCursorExceptionWhenAfterIsNotACursor(){
+        assertThatThrownBy(() -> service.findAllByCursor("", "invalid", PageRequest.of(0, 10))).isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    public void findAllByCursorShouldThrowUnsupportedSortExceptionWhenSortIsNotTheCursorOrder(){
+        assertThatThrownBy(() -> service.findAllByCursor("", "", PageRequest.of(0, 10, Sort.by("price"))))
+            .isInstanceOf(UnsupportedSortException.class);
+        assertThatThrownBy(() -> service.findAllByCursor("", "", PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "name"))))
+            .isInstanceOf(UnsupportedSortException.class);
+        verify(repository, never()).searchByNameAfter(any(), any(), any(), any());
+    }
+
+    @Test
+    public void searchProductsWithCategoriesByCursorShouldThrowUnsupportedSortExceptionWhenSortIsNotTheCursorOrder(){
+        assertThatThrownBy(() -> service.searchProductsWithCategoriesByCursor("0", "", "", PageRequest.of(0, 10, Sort.by("id", "name"))))
+            .isInstanceOf(UnsupportedSortException.class);
+    }
+
+    @Test
+    public void searchProductsWithCategoriesByCursorShouldReturnSliceOfProductDTO(){
+        List<Long> ids = Arrays.asList(1L,2L,3L);
         String name = "ma";
 
-        Page<ProductProjection> page = new PageImpl<>(List.of(projection));
+        when(repository.searchProductsAfter(ids, name, "", 0L, PageRequest.of(0, 11))).thenReturn(List.of(projection));
+        when(repository.searchProductRowsWithCategories(Arrays.asList(1L))).thenReturn(List.of(row));
+
+        CursorSliceDTO<ProductDTO> sut = service.searchProductsWithCategoriesByCursor("1,2,3", name, "", PageRequest.of(0, 10));
+
+        assertThat(sut.getContent()).hasSize(1);
+        assertThat(sut.getContent().get(0).getName()).isEqualTo(dto.getName());
+        assertThat(sut.getContent().get(0).getCategories().get(0).getName()).isEqualTo(dto.getCategories().get(0).getName());
+        assertThat(sut.isHasNext()).isFalse();
+    }
+
+    @Test
+    public void searchProductsWithCategoriesShouldReturnPagedProductDTOWhenCategoryIdIsNotBlank(){
+        List<Long> ids = Arrays.asList(1L,2L,3L);
+        Pageable pageable = PageRequest.of(0, 10);
+        String name = "ma";
 
-        when(repository.searchProducts(ids, name.trim(), pageable)).thenReturn(page);
-        when(repository.searchProductsWithCategories(Arrays.asList(1L))).thenReturn(List.of(prod));
+        when(repository.searchProductPageWithCategories(ids, name.trim(), pageable)).thenReturn(List.of(row));
+        when(countService.count(any(), eq(pageable), eq(1), any())).thenReturn(new ProductCount(1L, true));
 
         Page<ProductDTO> sut = service.searchProductsWithCategories("1,2,3", name, pageable);
 
@@ -161,10 +389,8 @@ public class ProductServiceTests {
         Pageable pageable = PageRequest.of(0, 10);
         String name = "ma";
 
-        Page<ProductProjection> page = new PageImpl<>(List.of(projection));
-
-        when(repository.searchProducts(ids, name.trim(), pageable)).thenReturn(page);
-        when(repository.searchProductsWithCategories(Arrays.asList(1L))).thenReturn(List.of(prod));
+        when(repository.searchProductPageWithCategories(ids, name.trim(), pageable)).thenReturn(List.of(row));
+        when(countService.count(any(), eq(pageable), eq(1), any())).thenReturn(new ProductCount(1L, true));
 
         Page<ProductDTO> sut = service.searchProductsWithCategories("0", name.trim(), pageable);
 
@@ -176,6 +402,43 @@ public class ProductServiceTests {
         assertThat(sut.getContent().get(0).getCategories().get(0).getName()).isEqualTo(dto.getCategories().get(0).getName());
     }
 
+    @Test
+    public void searchProductsWithCategoriesShouldGroupCategoriesOfSameProductFromSingleQuery(){
+        List<Long> ids = Arrays.asList();
+        Pageable pageable = PageRequest.of(0, 10);
+        String name = "";
+
+        ProductCategoryProjection secondCategory = mock(ProductCategoryProjection.class);
+        when(secondCategory.getId()).thenReturn(prod.getId());
+        when(secondCategory.getCategoryId()).thenReturn(2L);
+        when(secondCategory.getCategoryName()).thenReturn("Eletrônicos");
+
+        when(repository.searchProductPageWithCategories(ids, name, pageable)).thenReturn(List.of(row, secondCategory));
+        when(countService.count(any(), eq(pageable), eq(1), any())).thenReturn(new ProductCount(1L, true));
+
+        Page<ProductDTO> sut = service.searchProductsWithCategories("0", name, pageable);
+
+        assertThat(sut.getTotalElements()).isEqualTo(1L);
+        assertThat(sut.getContent()).hasSize(1);
+        assertThat(sut.getContent().get(0).getCategories()).extracting(CategoryDTO::getId).containsExactly(cat.getId(), 2L);
+    }
+
+    @Test
+    public void searchProductsWithCategoriesShouldFlagEstimatedTotalWhenCountPassesThreshold(){
+        List<Long> ids = Arrays.asList(1L);
+        Pageable pageable = PageRequest.of(0, 1);
+        String name = "ma";
+
+        when(repository.searchProductPageWithCategories(ids, name, pageable)).thenReturn(List.of(row));
+        when(countService.count(eq(CountKey.of(Scope.CATEGORIES, name, ids)), eq(pageable), eq(1), any())).thenReturn(new ProductCount(10000L, false));
+
+        Page<ProductDTO> sut = service.searchProductsWithCategories("1", name, pageable);
+
+        assertThat(sut).isInstanceOf(CountedPageDTO.class);
+        assertThat(sut.getTotalElements()).isEqualTo(10000L);
+        assertThat(((CountedPageDTO<?>) sut).isTotalExact()).isFalse();
+    }
+
     @Test
     public void insertShouldReturnNewProductDTOWhenDataIsValid(){
         when(repository.save(any(Product.class))).thenReturn(prod);
@@ -212,6 +475,7 @@ public class ProductServiceTests {
         assertThat(result.getImgUrl()).isEqualTo(update.getImgUrl());
         assertThat(result.getCategories().get(0).getId()).isEqualTo(updateCat.getId());
         assertThat(result.getCategories().get(0).getName()).isEqualTo(updateCat.getName());
+        verify(eventPublisher).publishEvent(any(ProductChangedEvent.class));
     }
 
     @Test
@@ -229,6 +493,7 @@ public class ProductServiceTests {
         doNothing().when(repository).deleteById(existingId);
 
         assertThatCode(() -> service.delete(existingId)).doesNotThrowAnyException();
+        verify(eventPublisher).publishEvent(any(ProductChangedEvent.class));
     }
 
     @Test
@@ -7,7 +7,10 @@ import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDate;
@@ -18,29 +21,38 @@ import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import com.devsuperior.dscommerce.config.CacheConfig;
 import com.devsuperior.dscommerce.dtos.UserDTO;
 import com.devsuperior.dscommerce.dtos.UserInsertDTO;
 import com.devsuperior.dscommerce.dtos.UserUpdateDTO;
 import com.devsuperior.dscommerce.entities.Role;
 import com.devsuperior.dscommerce.entities.User;
+import com.devsuperior.dscommerce.events.UserChangedEvent;
 import com.devsuperior.dscommerce.projections.UserDetailsProjection;
 import com.devsuperior.dscommerce.repositories.RoleRepository;
 import com.devsuperior.dscommerce.repositories.UserRepository;
 import com.devsuperior.dscommerce.services.exceptions.DatabaseException;
 import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
+import com.devsuperior.dscommerce.util.CacheGenerations;
 import com.devsuperior.dscommerce.util.CustomUserUtils;
 
 import jakarta.persistence.EntityNotFoundException;
@@ -66,6 +78,15 @@ public class UserServiceTests {
     @Mock
     private AuthService authService;
 
+    @Mock
+    private CacheManager cacheManager;
+
+    @Spy
+    private CacheGenerations cacheGenerations = new CacheGenerations();
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private User client;
     private UserDTO clientDTO;
 
@@ -120,6 +141,7 @@ public class UserServiceTests {
 
     @Test
     public void loadUserByUsernameShouldReturnUserWhenUserNameExists(){
+        when(cacheManager.getCache(CacheConfig.USER_DETAILS)).thenReturn(new ConcurrentMapCache(CacheConfig.USER_DETAILS));
         when(repository.searchUserAndRolesByEmail(existingUsername)).thenReturn(List.of(projection));
 
         UserDetails result = service.loadUserByUsername(existingUsername);
@@ -127,19 +149,70 @@ public class UserServiceTests {
         assertThat(result).isNotNull();
         assertThat(result.getUsername()).isEqualTo(client.getEmail());
         assertThat(result.getPassword()).isEqualTo(client.getPassword());
+        assertThat(result.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_CLIENT");
+    }
+
+    @Test
+    public void loadUserByUsernameShouldReuseCachedSnapshotForRepeatedLogins(){
+        when(cacheManager.getCache(CacheConfig.USER_DETAILS)).thenReturn(new ConcurrentMapCache(CacheConfig.USER_DETAILS));
+        when(repository.searchUserAndRolesByEmail(existingUsername)).thenReturn(List.of(projection));
+
+        UserDetails first = service.loadUserByUsername(existingUsername);
+        UserDetails second = service.loadUserByUsername(existingUsername);
+
+        assertThat(second).isSameAs(first);
+        verify(repository, times(1)).searchUserAndRolesByEmail(existingUsername);
+    }
+
+    @Test
+    public void loadUserByUsernameShouldNotKeepHashReadBeforePasswordResetCommitted(){
+        ConcurrentMapCache cache = new ConcurrentMapCache(CacheConfig.USER_DETAILS);
+        when(cacheManager.getCache(CacheConfig.USER_DETAILS)).thenReturn(cache);
+        UserDetailsProjection reset = Mockito.mock(UserDetailsProjection.class);
+        when(reset.getUsername()).thenReturn(client.getEmail());
+        when(reset.getPassword()).thenReturn("new-hash");
+        when(reset.getAuthority()).thenReturn("ROLE_CLIENT");
+        when(repository.searchUserAndRolesByEmail(existingUsername)).thenAnswer(invocation -> {
+            // the grant has read the old hash; saveNewPassword now commits and UserCacheListener evicts
+            cacheGenerations.evict(cache, existingUsername);
+            return List.of(projection);
+        }).thenReturn(List.of(reset));
+
+        UserDetails grant = service.loadUserByUsername(existingUsername);
+        UserDetails next = service.loadUserByUsername(existingUsername);
+
+        assertThat(grant.getPassword()).isEqualTo(client.getPassword());
+        assertThat(next.getPassword()).isEqualTo("new-hash");
+        verify(repository, times(2)).searchUserAndRolesByEmail(existingUsername);
     }
 
     @Test
     public void loadUserByUsernameShouldThrowUserNameNotFoundExceptionWhenUserNameDoesNotExist(){
+        when(cacheManager.getCache(CacheConfig.USER_DETAILS)).thenReturn(new ConcurrentMapCache(CacheConfig.USER_DETAILS));
         when(repository.searchUserAndRolesByEmail(nonExistingUsername)).thenReturn(Collections.emptyList());
 
         assertThatThrownBy(() -> service.loadUserByUsername(nonExistingUsername)).isInstanceOf(UsernameNotFoundException.class);
     }
 
+    @Test
+    public void updatePasswordShouldStoreNewHashAndPublishUserChangedEvent(){
+        UserDetails user = new UserService.UserCredentials(existingUsername, "old-hash", List.of());
+
+        UserDetails result = service.updatePassword(user, "new-hash");
+
+        assertThat(result.getPassword()).isEqualTo("new-hash");
+        verify(repository).updatePasswordByEmail(existingUsername, "new-hash");
+        ArgumentCaptor<Object> event = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(((UserChangedEvent) event.getValue()).getUsername()).isEqualTo(existingUsername);
+    }
+
     @Test
     public void authenticatedShouldReturnLoggedUserWhenUserExists(){
         when(customUserUtils.getLoggedUsername()).thenReturn(existingUsername);
-        when(repository.findByEmail(existingUsername)).thenReturn(client);
+        when(cacheManager.getCache(CacheConfig.AUTHENTICATED_USERS)).thenReturn(new ConcurrentMapCache(CacheConfig.AUTHENTICATED_USERS));
+        when(repository.findIdByEmail(existingUsername)).thenReturn(Optional.of(existingId));
+        when(repository.findById(existingId)).thenReturn(Optional.of(client));
 
         User sut = service.authenticated();
 
@@ -158,10 +231,32 @@ public class UserServiceTests {
         assertThatThrownBy(() -> service.authenticated()).isInstanceOf(UsernameNotFoundException.class);
     }
 
+    @Test
+    public void authenticatedIdShouldQueryDatabaseOnceForSameUsername(){
+        when(customUserUtils.getLoggedUsername()).thenReturn(existingUsername);
+        when(cacheManager.getCache(CacheConfig.AUTHENTICATED_USERS)).thenReturn(new ConcurrentMapCache(CacheConfig.AUTHENTICATED_USERS));
+        when(repository.findIdByEmail(existingUsername)).thenReturn(Optional.of(existingId));
+
+        service.authenticatedId();
+        Long sut = service.authenticatedId();
+
+        assertThat(sut).isEqualTo(existingId);
+        verify(repository, times(1)).findIdByEmail(existingUsername);
+    }
+
+    @Test
+    public void authenticatedIdShouldThrowUsernameNotFoundExceptionWhenEmailIsNotRegistered(){
+        when(customUserUtils.getLoggedUsername()).thenReturn(nonExistingUsername);
+        when(cacheManager.getCache(CacheConfig.AUTHENTICATED_USERS)).thenReturn(new ConcurrentMapCache(CacheConfig.AUTHENTICATED_USERS, false));
+        when(repository.findIdByEmail(nonExistingUsername)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.authenticatedId()).isInstanceOf(UsernameNotFoundException.class);
+    }
+
     @Test
     public void getMeShouldReturnUserDTOWhenUserIsAuthenticated(){
         UserService spyService = Mockito.spy(service);
-        when(spyService.authenticated()).thenReturn(client);
+        doReturn(client).when(spyService).authenticated();
 
         UserDTO result = spyService.getMe();
 
@@ -177,7 +272,7 @@ public class UserServiceTests {
     @Test
     public void getMeShouldThrowUsernameNotFoundExceptionWhenUserIsNotAuthenticated(){
         UserService spyService = Mockito.spy(service);
-        when(spyService.authenticated()).thenThrow(UsernameNotFoundException.class);
+        doThrow(UsernameNotFoundException.class).when(spyService).authenticated();
 
         assertThatThrownBy(() -> spyService.getMe()).isInstanceOf(UsernameNotFoundException.class);
     }
@@ -246,8 +341,14 @@ public class UserServiceTests {
         when(passwordEncoder.encode(update.getPassword())).thenReturn(encoded);
         when(repository.save(any(User.class))).thenReturn(update);
 
+        String previousEmail = client.getEmail();
         UserDTO sut = service.update(existingId, updateDTO);
 
+        ArgumentCaptor<Object> event = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue()).isInstanceOf(UserChangedEvent.class);
+        assertThat(((UserChangedEvent) event.getValue()).getUsername()).isEqualTo(previousEmail);
+
         assertThat(sut).isNotNull();
         assertThat(sut.getId()).isEqualTo(updateDTO.getId());
         assertThat(sut.getName()).isEqualTo(updateDTO.getName());
@@ -266,7 +367,7 @@ public class UserServiceTests {
 
     @Test
     public void deleteShouldThrowNoExceptionWhenIdExists(){
-        when(repository.existsById(existingId)).thenReturn(true);
+        when(repository.findById(existingId)).thenReturn(Optional.of(client));
         doNothing().when(repository).deleteById(existingId);
 
         assertThatCode(() -> service.deleteById(existingId)).doesNotThrowAnyException();
@@ -274,14 +375,14 @@ public class UserServiceTests {
 
     @Test
     public void deleteShouldThrowResourceNotFoundExceptionWhenIdDoesNotExist(){
-        when(repository.existsById(nonExistingId)).thenReturn(false);
+        when(repository.findById(nonExistingId)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> service.deleteById(nonExistingId)).isInstanceOf(ResourceNotFoundException.class);
     }
 
     @Test
     public void deleteShouldThrowDatabaseExceptionWhenIdIsDependent(){
-        when(repository.existsById(dependentId)).thenReturn(true);
+        when(repository.findById(dependentId)).thenReturn(Optional.of(client));
         doThrow(DataIntegrityViolationException.class).when(repository).deleteById(dependentId);
 
         assertThatThrownBy(() -> service.deleteById(dependentId)).isInstanceOf(DatabaseException.class);
@@ -0,0 +1,63 @@
+package com.devsuperior.dscommerce.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.devsuperior.dscommerce.controllers.CategoryController;
+import com.devsuperior.dscommerce.controllers.ProductController;
+
+public class LinkTemplateTests {
+
+    private final LinkTemplate productById = LinkTemplate.of(ProductController.class, "findById", Long.class);
+    private final LinkTemplate productsWithCategories = LinkTemplate.of(ProductController.class, "searchProductsWithCategories", String.class, String.class, Pageable.class);
+    private final LinkTemplate productsByCursor = LinkTemplate.of(ProductController.class, "findAllByCursor", String.class, String.class, Pageable.class);
+    private final LinkTemplate categories = LinkTemplate.of(CategoryController.class, "findAll");
+
+    @AfterEach
+    public void tearDown(){
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void expandShouldMatchLinkToOutsideRequest(){
+        String baseUri = LinkTemplate.currentBaseUri();
+
+        assertThat(productById.expand(baseUri, 7L)).isEqualTo(linkTo(methodOn(ProductController.class).findById(7L)).toUri().toString());
+        assertThat(categories.expand(baseUri)).isEqualTo(linkTo(methodOn(CategoryController.class).findAll()).toUri().toString());
+    }
+
+    @Test
+    public void expandShouldMatchLinkToInsideRequestIncludingEncodedQueryParams(){
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/products/categories");
+        request.setServerName("shop.example.com");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        String baseUri = LinkTemplate.currentBaseUri();
+
+        assertThat(productsWithCategories.expand(baseUri, "1,3", "pc gamer ção"))
+            .isEqualTo(linkTo(methodOn(ProductController.class).searchProductsWithCategories("1,3", "pc gamer ção", null)).toUri().toString());
+        assertThat(productsByCursor.expand(baseUri, "", ""))
+            .isEqualTo(linkTo(methodOn(ProductController.class).findAllByCursor("", "", null)).toUri().toString());
+    }
+
+    @Test
+    public void linkShouldKeepRelation(){
+        assertThat(productById.link("", IanaLinkRelations.SELF, 1L).getRel()).isEqualTo(IanaLinkRelations.SELF);
+        assertThat(productById.link("", "Consultar Produto por Id", 1L).getRel().value()).isEqualTo("Consultar Produto por Id");
+    }
+
+    @Test
+    public void expandShouldThrowIllegalArgumentExceptionWhenArgumentsDoNotMatchMapping(){
+        assertThatThrownBy(() -> productById.expand("")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LinkTemplate.of(ProductController.class, "notMapped")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
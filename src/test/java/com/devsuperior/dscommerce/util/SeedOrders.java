@@ -0,0 +1,23 @@
+package com.devsuperior.dscommerce.util;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// ITs that have to commit orders put the table back as import.sql left it, ids included,
+// since OrderControllerIT asserts on the seeded rows and on the next generated id
+@Component
+public class SeedOrders {
+
+    public static final long LAST_SEEDED_ID = 3L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void restore() {
+        jdbcTemplate.update("DELETE FROM payments WHERE order_id > ?", LAST_SEEDED_ID);
+        jdbcTemplate.update("DELETE FROM order_items WHERE order_id > ?", LAST_SEEDED_ID);
+        jdbcTemplate.update("DELETE FROM orders WHERE id > ?", LAST_SEEDED_ID);
+        jdbcTemplate.execute("ALTER TABLE orders ALTER COLUMN id RESTART WITH " + (LAST_SEEDED_ID + 1));
+    }
+}